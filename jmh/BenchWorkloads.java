@@ -0,0 +1,221 @@
+import bench.Workload;
+
+/**
+ * The default-package side of the JMH benchmarks in package bench. Every
+ * nested class times one hot path of the simulators.
+ *
+ * @version 18/10/26
+ */
+public class BenchWorkloads {
+
+	/**
+	 * One put and one get on a queue that holds a steady number of customers
+	 */
+	public static class QueuePutGet implements Workload {
+		private Queue q;
+
+		public void setup(int servers, double lambdaA) {
+			q = new Queue();
+			for (int i = 0; i < servers; i++)
+				q.put(i);
+		}
+
+		public long run(int ops) {
+			double sum = 0.0;
+			for (int i = 0; i < ops; i++) {
+				q.put(i);
+				sum += q.get();
+			}
+			return (long) sum;
+		}
+	}
+
+	/**
+	 * Exponential inter-arrival times from MyRandom
+	 */
+	public static class Exponential implements Workload {
+		MyRandom r;
+		private double lambdaA;
+
+		public void setup(int servers, double lambdaA) {
+			r = new MyRandom(12342);
+			this.lambdaA = lambdaA;
+		}
+
+		public long run(int ops) {
+			double sum = 0.0;
+			for (int i = 0; i < ops; i++)
+				sum += r.nextExponential(lambdaA);
+			return Double.doubleToRawLongBits(sum);
+		}
+	}
+
+	/**
+	 * Exponential inter-arrival times from FastRandom
+	 */
+	public static class FastExponential extends Exponential {
+		public void setup(int servers, double lambdaA) {
+			super.setup(servers, lambdaA);
+			r = new FastRandom(12342);
+		}
+	}
+
+	/**
+	 * Erlang-3 service times from MyRandom
+	 */
+	public static class Erlang implements Workload {
+		MyRandom r;
+
+		public void setup(int servers, double lambdaA) {
+			r = new MyRandom(12342);
+		}
+
+		public long run(int ops) {
+			double sum = 0.0;
+			for (int i = 0; i < ops; i++)
+				sum += r.nextErlang(3, 20.0);
+			return Double.doubleToRawLongBits(sum);
+		}
+	}
+
+	/**
+	 * Erlang-3 service times from FastRandom
+	 */
+	public static class FastErlang extends Erlang {
+		public void setup(int servers, double lambdaA) {
+			r = new FastRandom(12342);
+		}
+	}
+
+	/**
+	 * Exponential inter-arrival times from a BufferedRandom on FastRandom
+	 */
+	public static class BufferedExponential extends Exponential {
+		public void setup(int servers, double lambdaA) {
+			super.setup(servers, lambdaA);
+			r = new BufferedRandom(new FastRandom(12342));
+		}
+	}
+
+	/**
+	 * Erlang-3 service times from a BufferedRandom on FastRandom
+	 */
+	public static class BufferedErlang extends Erlang {
+		public void setup(int servers, double lambdaA) {
+			r = new BufferedRandom(new FastRandom(12342));
+		}
+	}
+
+	/**
+	 * A pool of busy servers shared by the server lookups
+	 */
+	abstract static class Servers implements Workload {
+		ServerPool pool;
+		MyRandom r;
+
+		public void setup(int servers, double lambdaA) {
+			r = new FastRandom(12342);
+			pool = new ServerPool(servers);
+			// Only the last server is free, so the scans see every server
+			for (int i = 0; i < servers; i++) {
+				int id = pool.open();
+				if (i != servers - 1)
+					pool.start(id, r.nextErlang(3, 20.0));
+			}
+		}
+	}
+
+	/**
+	 * The first free server and the free and busy counts, as done on every
+	 * event, on the FreeServerSet alone. Only the last server is free at the
+	 * start. The server found is marked busy and the other of the last two
+	 * is set free, so the free server moves between them and every lookup
+	 * scans the set again.
+	 */
+	public static class FreeServer implements Workload {
+		private FreeServerSet set;
+		private int last;
+
+		public void setup(int servers, double lambdaA) {
+			set = new FreeServerSet(servers);
+			last = servers - 1;
+			for (int i = 0; i < servers; i++) {
+				set.open(i);
+				if (i != last)
+					set.setBusy(i);
+			}
+		}
+
+		public long run(int ops) {
+			long sum = 0;
+			int other = Math.max(0, last - 1);
+			for (int i = 0; i < ops; i++) {
+				int id = set.firstFree();
+				sum += id + set.freeCount() + set.busyCount();
+				set.setBusy(id);
+				set.setFree((id == last) ? other : last);
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * A customer started on the first free server of the pool and another
+	 * server released, as done by an arrival and a completion of the kernel.
+	 * Besides the lookup this updates the completion heap twice per
+	 * operation.
+	 */
+	public static class StartRelease extends Servers {
+		public long run(int ops) {
+			long sum = 0;
+			int last = pool.ids() - 1;
+			int other = Math.max(0, last - 1);
+			for (int i = 0; i < ops; i++) {
+				int id = pool.firstFree();
+				sum += id + pool.freeCount() + pool.busyCount();
+				pool.start(id, i);
+				pool.release((id == last) ? other : last);
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Completion of the next server and a new completion time for it, as
+	 * done on every service event of the kernel
+	 */
+	public static class NextCompletion extends Servers {
+		public long run(int ops) {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int id = pool.nextCompletion();
+				pool.next(id, pool.tnc(id) + r.nextErlang(3, 20.0));
+				sum += id;
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Whole work-days of Simulate2 without the event trace. Returns the
+	 * number of events so the benchmark can report events per second.
+	 */
+	public static class Day implements Workload {
+		private int servers;
+		private double lambdaA;
+		private long seed = 12342;
+
+		public void setup(int servers, double lambdaA) {
+			this.servers = servers;
+			this.lambdaA = lambdaA;
+		}
+
+		public long run(int ops) {
+			long events = 0;
+			for (int i = 0; i < ops; i++)
+				events += Simulate2.simulateNServers(lambdaA, 20.0, 8.0,
+						servers, seed++, NullTraceSink.INSTANCE).getEvents();
+			return events;
+		}
+	}
+}// End of Class
@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of whole simulated work-days of Simulate2 without the event
+ * trace. The score is days per second and the "events" counter gives the
+ * simulated events per second.
+ *
+ * @version 18/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DayBenchmark {
+
+	@Param({ "3", "30", "300" })
+	int servers;
+
+	@Param({ "58", "580", "5800" })
+	double lambdaA;
+
+	private Workload day;
+
+	/**
+	 * Counts the simulated events
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Events {
+		public long events;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			events = 0;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		day = Workload.load("BenchWorkloads$Day", servers, lambdaA);
+	}
+
+	@Benchmark
+	public long day(Events counter) {
+		long events = day.run(1);
+		counter.events += events;
+		return events;
+	}
+}// End of Class
@@ -0,0 +1,48 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of a put and a get on the Queue, for short and long queues.
+ *
+ * @version 18/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+	static final int OPS = 1024;
+
+	@Param({ "8", "4096" })
+	int queueLength;
+
+	private Workload putGet;
+
+	@Setup
+	public void setup() {
+		putGet = Workload.load("BenchWorkloads$QueuePutGet", queueLength, 0.0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long putGet() {
+		return putGet.run(OPS);
+	}
+}// End of Class
@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the inter-arrival and service time samplers.
+ *
+ * @version 18/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomBenchmark {
+
+	static final int OPS = 1024;
+
+	private Workload exponential;
+	private Workload fastExponential;
+	private Workload erlang;
+	private Workload fastErlang;
+	private Workload bufferedExponential;
+	private Workload bufferedErlang;
+
+	@Setup
+	public void setup() {
+		exponential = Workload.load("BenchWorkloads$Exponential", 0, 58.0);
+		fastExponential = Workload.load("BenchWorkloads$FastExponential", 0,
+				58.0);
+		erlang = Workload.load("BenchWorkloads$Erlang", 0, 0.0);
+		fastErlang = Workload.load("BenchWorkloads$FastErlang", 0, 0.0);
+		bufferedExponential = Workload.load(
+				"BenchWorkloads$BufferedExponential", 0, 58.0);
+		bufferedErlang = Workload.load("BenchWorkloads$BufferedErlang", 0, 0.0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long exponential() {
+		return exponential.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long fastExponential() {
+		return fastExponential.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long erlang() {
+		return erlang.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long fastErlang() {
+		return fastErlang.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long bufferedExponential() {
+		return bufferedExponential.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long bufferedErlang() {
+		return bufferedErlang.run(OPS);
+	}
+}// End of Class
@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the per-event server lookups: the first free server with
+ * the free and busy counts, and the next completion; and of a start and a
+ * release on the whole pool.
+ *
+ * @version 18/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerBenchmark {
+
+	static final int OPS = 256;
+
+	@Param({ "3", "30", "300", "3000" })
+	int servers;
+
+	private Workload freeServer;
+	private Workload nextCompletion;
+	private Workload startRelease;
+
+	@Setup
+	public void setup() {
+		freeServer = Workload.load("BenchWorkloads$FreeServer", servers, 0.0);
+		nextCompletion = Workload.load("BenchWorkloads$NextCompletion",
+				servers, 0.0);
+		startRelease = Workload.load("BenchWorkloads$StartRelease", servers,
+				0.0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long freeServer() {
+		return freeServer.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long nextCompletion() {
+		return nextCompletion.run(OPS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public long startRelease() {
+		return startRelease.run(OPS);
+	}
+}// End of Class
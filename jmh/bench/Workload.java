@@ -0,0 +1,44 @@
+package bench;
+
+/**
+ * A piece of simulator code to be timed. The simulators are in the default
+ * package, which a named package cannot import, so each workload is a
+ * default-package class that implements this interface and is loaded by
+ * name. The call through the interface is monomorphic and gets inlined.
+ *
+ * @version 18/10/26
+ */
+public interface Workload {
+
+	/**
+	 * Prepare the workload
+	 * @param servers The number of servers
+	 * @param lambdaA The arrival rate per hour
+	 */
+	void setup(int servers, double lambdaA);
+
+	/**
+	 * Run the operation a number of times
+	 * @param ops The number of operations
+	 * @return A value depending on every operation, to be consumed
+	 */
+	long run(int ops);
+
+	/**
+	 * Load and prepare a workload by its class name
+	 * @param name The binary name of the default-package class
+	 * @param servers The number of servers
+	 * @param lambdaA The arrival rate per hour
+	 * @return The workload
+	 */
+	static Workload load(String name, int servers, double lambdaA) {
+		try {
+			Workload w = (Workload) Class.forName(name)
+					.getDeclaredConstructor().newInstance();
+			w.setup(servers, lambdaA);
+			return w;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot load workload " + name, e);
+		}
+	}
+}// End of Interface
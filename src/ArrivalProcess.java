@@ -0,0 +1,49 @@
+/**
+ * This interface gives the arrival times of the customers to the simulation
+ * kernel. The random numbers come from the stream of the run, so a process
+ * keeps no state and can be shared between replications.
+ *
+ * @version 18/10/26
+ */
+public interface ArrivalProcess {
+
+	/**
+	 * The time of the next arrival
+	 * @param r The stream of inter-arrival times
+	 * @param clock The time of the arrival just made
+	 * @return The time of the next arrival, infinite if there are no more
+	 */
+	double next(MyRandom r, double clock);
+
+	/**
+	 * Poisson arrivals at a constant rate
+	 * @param lambda The number of arrivals per hour
+	 * @param tEnd No arrival is made after this time; infinite for none
+	 * @return The arrival process
+	 */
+	static ArrivalProcess poisson(final double lambda, final double tEnd) {
+		return new ArrivalProcess() {
+			public double next(MyRandom r, double clock) {
+				double tna = clock + r.nextExponential(lambda);
+				return (tna > tEnd) ? Double.POSITIVE_INFINITY : tna;
+			}
+		};
+	}
+
+	/**
+	 * Non-homogeneous Poisson arrivals with a piecewise-constant rate. Every
+	 * arrival takes one random number, whatever buckets the gap crosses.
+	 * @param rates The rate over the day
+	 * @param tEnd No arrival is made after this time; infinite for none
+	 * @return The arrival process
+	 */
+	static ArrivalProcess nonHomogeneous(final RateTable rates,
+			final double tEnd) {
+		return new ArrivalProcess() {
+			public double next(MyRandom r, double clock) {
+				double tna = rates.next(clock, r.nextExponential(1.0));
+				return (tna > tEnd) ? Double.POSITIVE_INFINITY : tna;
+			}
+		};
+	}
+}// End of Interface
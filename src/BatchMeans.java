@@ -0,0 +1,305 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This class estimates a confidence interval on the mean of one long,
+ * autocorrelated run by the method of batch means. Consecutive values are
+ * grouped into batches and the batch means, which are close to independent
+ * when the batches are long enough, are treated as the sample.
+ *
+ * The number of batches is kept between the target and twice the target:
+ * when the buffer of batches is full, neighbouring batches are merged and
+ * the batch size doubles. The memory is fixed when the object is created,
+ * so the run can be of any length.
+ *
+ * The batches also give the warm-up to discard from a run that starts
+ * empty, by the MSER rule: the truncation is the one that minimises the
+ * squared standard error of the mean of the batches that remain. Started
+ * with batches of 5 this is MSER-5, with batches that coarsen as the run
+ * gets longer.
+ *
+ * @version 18/10/26
+ */
+public class BatchMeans {
+
+	/**
+	 * Default number of batches
+	 */
+	public static final int DEFAULT_BATCHES = 20;
+
+	private final double[] sums; // Sum of the values of each full batch
+	private int batches; // Number of full batches
+	private long batchSize; // Number of values per batch
+	private double current; // Sum of the values of the batch being filled
+	private long inCurrent; // Number of values in the batch being filled
+	private long n; // Total number of values
+	private double total; // Sum of all values
+	private final long firstBatchSize; // Number of values per batch at the start
+
+	/**
+	 * Constructor with the default number of batches
+	 */
+	public BatchMeans() {
+		this(DEFAULT_BATCHES);
+	}
+
+	/**
+	 * @param target
+	 *            The least number of batches once the run is long enough
+	 */
+	public BatchMeans(int target) {
+		this(target, 1);
+	}
+
+	/**
+	 * @param target
+	 *            The least number of batches once the run is long enough
+	 * @param batchSize
+	 *            The number of values per batch at the start, 5 for MSER-5
+	 */
+	public BatchMeans(int target, long batchSize) {
+		if (target < 2)
+			throw new IllegalArgumentException("Need at least two batches");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batches need a value");
+		sums = new double[2 * target];
+		this.batchSize = batchSize;
+		this.firstBatchSize = batchSize;
+	}
+
+	/**
+	 * Add the next value of the run
+	 *
+	 * @param x
+	 *            The value
+	 */
+	public void add(double x) {
+		n++;
+		total += x;
+		current += x;
+		if (++inCurrent == batchSize) {
+			sums[batches++] = current;
+			current = 0.0;
+			inCurrent = 0;
+			if (batches == sums.length)
+				collapse();
+		}
+	}
+
+	/**
+	 * Remove every value
+	 */
+	public void clear() {
+		batches = 0;
+		batchSize = firstBatchSize;
+		current = 0.0;
+		inCurrent = 0;
+		n = 0;
+		total = 0.0;
+	}
+
+	/**
+	 *
+	 * @return The total number of values
+	 */
+	public long count() {
+		return n;
+	}
+
+	/**
+	 *
+	 * @return The number of full batches
+	 */
+	public int batches() {
+		return batches;
+	}
+
+	/**
+	 *
+	 * @return The number of values per batch
+	 */
+	public long batchSize() {
+		return batchSize;
+	}
+
+	/**
+	 *
+	 * @return The mean of all values, NaN if there are none
+	 */
+	public double mean() {
+		return (n == 0) ? Double.NaN : total / n;
+	}
+
+	/**
+	 * The batch means as an accumulator. The values of the batch being
+	 * filled are left out.
+	 *
+	 * @param stats
+	 *            The accumulator to fill, cleared first
+	 * @return The accumulator
+	 */
+	public OnlineStats batchStats(OnlineStats stats) {
+		stats.clear();
+		for (int i = 0; i < batches; i++)
+			stats.add(sums[i] / batchSize);
+		return stats;
+	}
+
+	/**
+	 * Half-width of the confidence interval on the mean, from the variance
+	 * of the batch means
+	 *
+	 * @param confidence
+	 *            The confidence level, e.g. 0.95
+	 * @return The half-width, NaN if there are fewer than two batches
+	 */
+	public double halfWidth(double confidence) {
+		if (batches < 2)
+			return Double.NaN;
+		double m = 0.0;
+		for (int i = 0; i < batches; i++)
+			m += sums[i];
+		m /= (double) batches * batchSize;
+		double ss = 0.0;
+		for (int i = 0; i < batches; i++) {
+			double d = sums[i] / batchSize - m;
+			ss += d * d;
+		}
+		double se = Math.sqrt(ss / (batches - 1) / batches);
+		return OnlineStats.tQuantile(0.5 + confidence / 2, batches - 1) * se;
+	}
+
+	/**
+	 * Formats the mean with its confidence interval as "mean +- half-width"
+	 *
+	 * @param confidence
+	 *            The confidence level, e.g. 0.95
+	 * @return The formatted interval
+	 */
+	public String toString(double confidence) {
+		return mean() + " +- " + halfWidth(confidence) + " ("
+				+ Math.round(100 * confidence) + "% CI, " + batches
+				+ " batches of " + batchSize + ")";
+	}
+
+	/**
+	 * The warm-up to discard by the MSER rule: the number of leading batches
+	 * whose removal minimises the squared standard error of the mean of the
+	 * rest. At most half of the batches are discarded.
+	 *
+	 * @return The number of full batches to discard, 0 if there are fewer
+	 *         than two
+	 */
+	public int truncation() {
+		if (batches < 2)
+			return 0;
+		// Centred on the overall mean, so the sums of squares do not cancel
+		double m = 0.0;
+		for (int i = 0; i < batches; i++)
+			m += sums[i];
+		m /= (double) batches * batchSize;
+		// Sums of the centred batch means from the end of the run back
+		double s = 0.0;
+		double q = 0.0;
+		int best = 0;
+		double bestMser = Double.POSITIVE_INFINITY;
+		for (int d = batches - 1; d >= 0; d--) {
+			double y = sums[d] / batchSize - m;
+			s += y;
+			q += y * y;
+			int k = batches - d;
+			if (2 * d > batches || k < 2)
+				continue;
+			double mser = (q - s * s / k) / ((double) k * k);
+			if (mser <= bestMser) {
+				bestMser = mser;
+				best = d;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The batch means of the run without its leading batches, regrouped into
+	 * fewer, longer batches for the confidence interval. The values of the
+	 * batch being filled are left out.
+	 *
+	 * @param drop
+	 *            The number of leading full batches to discard
+	 * @param target
+	 *            The least number of batches of the result
+	 * @return A new accumulator of the rest of the run
+	 */
+	public BatchMeans truncated(int drop, int target) {
+		BatchMeans rest = new BatchMeans(target, batchSize);
+		for (int i = drop; i < batches; i++)
+			rest.addBatch(sums[i], batchSize);
+		return rest;
+	}
+
+	/**
+	 * Write the state to a buffer, for a snapshot of a run
+	 *
+	 * @param out
+	 *            The buffer to write to
+	 */
+	void write(ByteBuffer out) {
+		out.putInt(sums.length / 2).putLong(firstBatchSize);
+		out.putLong(batchSize).putInt(batches);
+		for (int i = 0; i < batches; i++)
+			out.putDouble(sums[i]);
+		out.putDouble(current).putLong(inCurrent);
+		out.putLong(n).putDouble(total);
+	}
+
+	/**
+	 * Read a state written by write
+	 *
+	 * @param in
+	 *            The buffer to read from
+	 * @return A new accumulator in that state
+	 */
+	static BatchMeans read(ByteBuffer in) {
+		BatchMeans b = new BatchMeans(in.getInt(), in.getLong());
+		b.batchSize = in.getLong();
+		b.batches = in.getInt();
+		for (int i = 0; i < b.batches; i++)
+			b.sums[i] = in.getDouble();
+		b.current = in.getDouble();
+		b.inCurrent = in.getLong();
+		b.n = in.getLong();
+		b.total = in.getDouble();
+		return b;
+	}
+
+	/**
+	 *
+	 * @return The number of bytes write needs at most
+	 */
+	int bytes() {
+		return 4 + 8 + 8 + 4 + 8 * sums.length + 8 + 8 + 8 + 8;
+	}
+
+	// Adds a whole batch of a finer or equal batch size
+	private void addBatch(double sum, long size) {
+		n += size;
+		total += sum;
+		current += sum;
+		inCurrent += size;
+		if (inCurrent == batchSize) {
+			sums[batches++] = current;
+			current = 0.0;
+			inCurrent = 0;
+			if (batches == sums.length)
+				collapse();
+		}
+	}
+
+	// Merges neighbouring batches and doubles the batch size
+	private void collapse() {
+		int half = batches / 2;
+		for (int i = 0; i < half; i++)
+			sums[i] = sums[2 * i] + sums[2 * i + 1];
+		batches = half;
+		batchSize *= 2;
+	}
+}// End of Class
@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class simulates a region of branches on a ring, each next to two
+ * others. A customer who arrives to find every server busy and at least a
+ * threshold of customers in the queue is sent to the neighbour with the
+ * shortest queue, if that is shorter than the threshold, and arrives there
+ * after the transfer delay. A customer is not sent on twice, and none is sent
+ * who would arrive after the doors close.
+ *
+ * Every branch is a logical process with its own kernel, state and random
+ * number streams, and the branches are shared out over one thread per core.
+ * They are kept in step conservatively: a customer sent at time t arrives no
+ * earlier than t plus the shortest transfer delay, the lookahead, so all the
+ * branches can run the events of a window of that length at once, without
+ * hearing from each other. Between windows the customers sent are handed to
+ * their branches, and each branch sees the queue lengths of its neighbours
+ * as they were at the end of the window. The results are the same whatever
+ * the number of threads.
+ *
+ * Usage: BranchNetwork [branches [delay [threshold [threads [seed]]]]]
+ *
+ * @version 18/10/26
+ */
+public class BranchNetwork {
+
+	private final Branch[] branches;
+	private final int[] published; // Queue lengths at the end of the window
+	private final double lookahead; // The shortest transfer delay
+	private final double tEnd;
+	private int windows; // The number of windows of the last run
+
+	public static void main(String[] args) throws InterruptedException {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		double delay = (args.length > 1) ? Double.parseDouble(args[1]) : 0.1;
+		int threshold = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime
+				.getRuntime().availableProcessors();
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : 12342;
+		final double lambdaS = 30.0;
+		final double tEnd = 8.0;
+		final int nserv = 2;
+
+		// The rates of Simulate3, busier at some branches than at others
+		double[] rates = new double[n];
+		for (int b = 0; b < n; b++)
+			rates[b] = 0.8 + 0.4 * ((b * 7) % 10) / 9.0;
+		BranchNetwork network = new BranchNetwork(rates, lambdaS, tEnd, nserv,
+				threshold, delay, seed);
+
+		SimulationMetrics.register();
+		long start = System.nanoTime();
+		SimulationResult[] results = network.run(threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long arrivals = 0, served = 0, wait6 = 0, events = 0;
+		double ttwait = 0.0;
+		for (SimulationResult result : results) {
+			arrivals += result.getArrivals();
+			served += result.getServed();
+			wait6 += result.getWait6();
+			ttwait += result.getTotalWait();
+			events += result.getEvents();
+		}
+		System.out.println("Branches               : " + n + " on " + threads
+				+ " threads, " + network.windows() + " windows of "
+				+ network.lookahead + " hours");
+		System.out.println("Events                 : " + events + " in "
+				+ seconds + " s");
+		System.out.println("Total customers arrived: " + arrivals);
+		System.out.println("Total customers served : " + served);
+		System.out.println("Customers transferred  : " + network.transfers());
+		System.out.println("Total customers >6min  : " + wait6);
+		System.out.println(" fraction              : " + (double) wait6
+				/ served);
+		System.out.println("Average waiting time   : " + 60 * ttwait / served
+				+ " minutes");
+	}
+
+	/**
+	 * @param rates
+	 *            The arrival rates of every branch, as factors of the rates
+	 *            of Simulate3
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers at every branch
+	 * @param threshold
+	 *            The queue length from which customers are sent on, at
+	 *            least 1
+	 * @param delay
+	 *            The time to get to a neighbouring branch
+	 * @param seed
+	 *            The seed of the streams of the first branch; branch b uses
+	 *            the streams of seed+b
+	 */
+	public BranchNetwork(double[] rates, double lambdaS, double tEnd,
+			int nserv, int threshold, double delay, long seed) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("Threshold must be at least 1");
+		if (!(delay > 0.0))
+			throw new IllegalArgumentException("Delay must be positive");
+		int n = rates.length;
+		int k = 3; // Initializes the kappa of the Erlang distribution
+		this.tEnd = tEnd;
+		branches = new Branch[n];
+		published = new int[n];
+		double shortest = Double.POSITIVE_INFINITY;
+		for (int b = 0; b < n; b++) {
+			// The neighbours on the ring, left and right
+			int[] neighbours = (n == 1) ? new int[0]
+					: (n == 2) ? new int[] { 1 - b } : new int[] {
+							(b + n - 1) % n, (b + 1) % n };
+			double[] delays = new double[neighbours.length];
+			Arrays.fill(delays, delay);
+			for (double d : delays)
+				shortest = Math.min(shortest, d);
+
+			RateTable day = Simulate3.RATES;
+			double[] hourly = new double[day.buckets()];
+			for (int i = 0; i < hourly.length; i++)
+				hourly[i] = rates[b] * day.bucketRate(i);
+			branches[b] = new Branch(neighbours, delays, threshold, tEnd,
+					published);
+			SimulationKernel kernel = new SimulationKernel(
+					ArrivalProcess.nonHomogeneous(new RateTable(day.width(),
+							hourly), tEnd),
+					ServiceDistribution.erlang(k, lambdaS),
+					StaffingPolicy.threshold(nserv, 6, Integer.MAX_VALUE),
+					branches[b], nserv, tEnd);
+			branches[b].kernel = kernel;
+			branches[b].state = kernel.start(RandomStreams.arrivals(seed + b,
+					false), RandomStreams.services(seed + b, false), seed + b);
+		}
+		lookahead = shortest;
+	}
+
+	/**
+	 * Run the day of every branch; a network is run once
+	 *
+	 * @param threads
+	 *            The number of threads to share the branches over
+	 * @return The results of the branches, in order
+	 * @exception InterruptedException
+	 *                if the run is interrupted
+	 */
+	public SimulationResult[] run(int threads) throws InterruptedException {
+		int parts = Math.max(1, Math.min(threads, branches.length));
+		ExecutorService pool = Executors.newFixedThreadPool(parts);
+		try {
+			boolean finished = false;
+			for (int w = 1; !finished; w++) {
+				// No customer is sent in a window that ends after the doors
+				// close, so the last one runs to the end of the day
+				double windowEnd = w * lookahead;
+				final double until = (windowEnd >= tEnd) ? Double.POSITIVE_INFINITY
+						: windowEnd;
+				List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+				for (int p = 0; p < parts; p++) {
+					final int part = p;
+					tasks.add(() -> advance(part, parts, until));
+				}
+				finished = true;
+				for (Future<Boolean> done : pool.invokeAll(tasks)) {
+					finished &= done.get();
+				}
+				deliver();
+				windows = w;
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		SimulationResult[] results = new SimulationResult[branches.length];
+		for (int b = 0; b < branches.length; b++)
+			results[b] = branches[b].kernel.result(branches[b].state);
+		return results;
+	}
+
+	/**
+	 *
+	 * @return The number of windows of the last run
+	 */
+	public int windows() {
+		return windows;
+	}
+
+	/**
+	 *
+	 * @return The number of customers sent to another branch
+	 */
+	public long transfers() {
+		long sent = 0;
+		for (Branch branch : branches)
+			sent += branch.sent;
+		return sent;
+	}
+
+	// Runs the branches p, p+parts, p+2*parts, ... to the end of the window
+	private Boolean advance(int p, int parts, double until) {
+		boolean finished = true;
+		for (int b = p; b < branches.length; b += parts) {
+			branches[b].windowEnd = until;
+			finished &= branches[b].kernel.advance(branches[b].state, until,
+					NullTraceSink.INSTANCE);
+		}
+		return finished;
+	}
+
+	// Hands the customers sent in the window to their branches, in the order
+	// of the senders, and publishes the queue lengths
+	private void deliver() {
+		for (Branch from : branches) {
+			for (int i = 0; i < from.outCount; i++)
+				branches[from.outTo[i]].receive(from.outTime[i]);
+			from.outCount = 0;
+		}
+		for (int b = 0; b < branches.length; b++)
+			published[b] = branches[b].state.q.length();
+	}
+
+	/**
+	 * A branch of the network: its kernel and state, the customers on their
+	 * way to it in order of arrival, and those it has sent in this window
+	 */
+	static class Branch implements Transfers {
+		private final int[] neighbours;
+		private final double[] delays;
+		private final int threshold;
+		private final double tEnd;
+		private final int[] published;
+		SimulationKernel kernel;
+		SimulationState state;
+		double windowEnd; // The end of the window being run
+
+		private double[] inbox = new double[16]; // Arrival times, sorted
+		private int inHead;
+		private int inTail;
+		int[] outTo = new int[16]; // Branches sent to in this window
+		double[] outTime = new double[16]; // and their arrival times there
+		int outCount;
+		long sent; // Customers sent on over the day
+
+		Branch(int[] neighbours, double[] delays, int threshold, double tEnd,
+				int[] published) {
+			this.neighbours = neighbours;
+			this.delays = delays;
+			this.threshold = threshold;
+			this.tEnd = tEnd;
+			this.published = published;
+		}
+
+		public double next() {
+			return (inHead < inTail) ? inbox[inHead]
+					: Double.POSITIVE_INFINITY;
+		}
+
+		public void take() {
+			inHead++;
+		}
+
+		public boolean redirect(int qLength, double clock) {
+			// Nobody is sent in the last window, which runs past the end of
+			// the day and has no window after it to deliver in
+			if (qLength < threshold || windowEnd >= tEnd)
+				return false;
+			// The neighbour with the shortest queue, as last heard, that the
+			// customer reaches before the doors close
+			int best = -1;
+			for (int i = 0; i < neighbours.length; i++) {
+				if (published[neighbours[i]] < threshold
+						&& arrival(i, clock) < tEnd
+						&& (best == -1 || published[neighbours[i]] < published[neighbours[best]]))
+					best = i;
+			}
+			if (best == -1)
+				return false;
+			if (outCount == outTo.length) {
+				outTo = Arrays.copyOf(outTo, 2 * outCount);
+				outTime = Arrays.copyOf(outTime, 2 * outCount);
+			}
+			outTo[outCount] = neighbours[best];
+			outTime[outCount++] = arrival(best, clock);
+			sent++;
+			return true;
+		}
+
+		// The time a customer sent now reaches neighbour i: never inside
+		// the window, whatever the rounding
+		private double arrival(int i, double clock) {
+			return Math.max(clock + delays[i], Math.nextUp(windowEnd));
+		}
+
+		// Puts a customer on the way in its place by arrival time; a tie
+		// goes after the customers already there
+		void receive(double time) {
+			if (inHead > 0 && inTail == inbox.length) {
+				// Reuse the slots of the customers already arrived
+				System.arraycopy(inbox, inHead, inbox, 0, inTail - inHead);
+				inTail -= inHead;
+				inHead = 0;
+			}
+			if (inTail == inbox.length)
+				inbox = Arrays.copyOf(inbox, 2 * inbox.length);
+			int i = inTail++;
+			while (i > inHead && inbox[i - 1] > time) {
+				inbox[i] = inbox[i - 1];
+				i--;
+			}
+			inbox[i] = time;
+		}
+	}
+}// End of Class
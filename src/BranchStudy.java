@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class studies the staffing of the afternoon from one morning. The
+ * morning is run once under the staffing of Simulate3 and saved to a
+ * snapshot file at a given hour; every variant of the staffing policy is then
+ * restored from that snapshot and run to the end of the day. The variants
+ * carry on the same random number streams, so they see the same afternoon
+ * customers, and the morning is not simulated again for each of them.
+ *
+ * Usage: BranchStudy [snapshot-file [hour [seed]]]
+ *
+ * @version 18/10/26
+ */
+public class BranchStudy {
+
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0] : "morning.snapshot";
+		double hour = (args.length > 1) ? Double.parseDouble(args[1]) : 4.0;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 12342;
+		final double lambdaS = 30.0;
+		final double tEnd = 8.0;
+		final int nserv = 2;
+		final int k = 3; // Initializes the kappa of the Erlang distribution
+		ArrivalProcess arrivals = ArrivalProcess.nonHomogeneous(
+				Simulate3.RATES, tEnd);
+		ServiceDistribution services = ServiceDistribution.erlang(k, lambdaS);
+
+		// The morning, as in Simulate3
+		SimulationKernel morning = new SimulationKernel(arrivals, services,
+				StaffingPolicy.threshold(nserv, 6, Integer.MAX_VALUE), nserv,
+				tEnd);
+		SimulationState state = morning.start(RandomStreams.arrivals(seed,
+				false), RandomStreams.services(seed, false), seed);
+		morning.advance(state, hour, NullTraceSink.INSTANCE);
+		state.save(file);
+		System.out.println("Morning saved to " + file + " at " + state.getClock()
+				+ " hours");
+
+		// The afternoon under every variant of the policy
+		ByteBuffer snapshot = SimulationState.map(file);
+		System.out.println("threshold max  fraction  wait(min)  server-hours");
+		for (int threshold = 2; threshold <= 8; threshold += 2) {
+			for (int max = nserv + 1; max <= nserv + 2; max++) {
+				SimulationKernel afternoon = new SimulationKernel(arrivals,
+						services, StaffingPolicy.threshold(nserv, threshold, max),
+						nserv, tEnd);
+				SimulationState branch = SimulationState.restore(snapshot);
+				afternoon.advance(branch, Double.POSITIVE_INFINITY,
+						NullTraceSink.INSTANCE);
+				SimulationResult result = afternoon.result(branch);
+				System.out.printf("%9d %3d  %8.4f  %9.3f  %12.2f%n", threshold,
+						max, result.getFraction(), 60 * result.getAverageWait(),
+						result.getServerHours());
+			}
+		}
+	}
+}// End of Class
@@ -0,0 +1,163 @@
+/**
+   This class draws the uniform numbers of a generator a block at a time
+   and makes the exponential and Erlang samples from the block in tight
+   loops over primitive arrays: the uniform numbers first, then their
+   logarithms, the first time a sample of a kind is taken from the block.
+   Every sample takes the same uniform numbers of the generator, in the
+   same order, as MyRandom would, so it is the same number: a stream gives
+   the same replication buffered or not, and the block and the position in
+   it are saved with the stream in a snapshot. The logarithms are made for
+   one kind of sample at a time, so a stream should be used for one kind
+   only; a mixed stream gives the same numbers, but slower. An instance
+   must not be shared between threads.
+   @version 18/10/26
+*/
+
+public class BufferedRandom extends MyRandom{
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+       Default number of uniform numbers per block
+    */
+    public static final int DEFAULT_BLOCK = 256;
+
+    // What the logarithms of the block are of; otherwise the Erlang shape
+    private static final int NONE = 0;
+    private static final int EXPONENTIAL = -1;
+
+    private final MyRandom source; // The generator, used by this buffer only
+    private final double[] uniform; // The uniform numbers of the block
+    private final double[] logs; // -log of the uniforms, or of Erlang products
+    private int next; // Position of the next uniform number in the block
+    private int end; // Number of uniform numbers in the block
+    private int kind; // What logs holds
+    private int first; // Position of the uniform numbers of logs[0]
+
+    /**
+       Constructor with the default block size
+       @param source the generator, not to be used by anything else
+    */
+    public BufferedRandom(MyRandom source){
+	this(source, DEFAULT_BLOCK);
+    }
+
+    /**
+       Constructor
+       @param source the generator, not to be used by anything else
+       @param block the number of uniform numbers per block
+    */
+    public BufferedRandom(MyRandom source, int block){
+	super(0L);
+	if (block < 1)
+	    throw new IllegalArgumentException("Block size must be positive");
+	this.source = source;
+	this.uniform = new double[block];
+	this.logs = new double[block];
+    }
+
+    /**
+       Resets the generator to the state given by the seed and drops the
+       block
+       @param seed the seed to be used
+    */
+    @Override
+    public void setSeed(long seed){
+	// Called by the constructor of Random, before there is a generator
+	if (source == null) return;
+	source.setSeed(seed);
+	next = end = 0;
+	kind = NONE;
+    }
+
+    /**
+       Returns the next uniform number of the generator
+       @return a uniformly distributed double
+    */
+    @Override
+    public double nextDouble(){
+	if (next == end) refill();
+	return uniform[next++];
+    }
+
+    /**
+       Samples a random number from the exponential distribution, the
+       number nextExponential of the generator would give
+       @param lambda parameter of exponential distribution (= 1/E(X)).
+       @return an exponentially distributed random number
+    */
+    @Override
+    public double nextExponential(double lambda){
+	if (next == end) refill();
+	if (kind != EXPONENTIAL) logUniforms();
+	double x = uniform[next];
+	double y = logs[next++];
+	if (x<1e-16) return 1e+20;
+	return y/lambda;
+    }
+
+    /**
+       Samples a random number from the Erlang-k distribution, the number
+       nextErlang of the generator would give
+       @param k shape parameter
+       @param lambda parameter of the Erlang distribution (=1/E(X)).
+       @return an Erlang distributed random number
+    */
+    @Override
+    public double nextErlang(int k, double lambda){
+	if (k < 1 || k > uniform.length) return super.nextErlang(k, lambda);
+	if (end - next < k) refill();
+	if (kind != k || (next - first) % k != 0) logProducts(k);
+	double y = logs[(next - first) / k];
+	next += k;
+	return y/(k*lambda);
+    }
+
+    /**
+       Returns the given number of random bits, the leading bits of the
+       next uniform number; used by the other methods of java.util.Random
+       @param bits number of random bits
+       @return an int holding the random bits
+    */
+    @Override
+    protected int next(int bits){
+	long x = (long) (nextDouble() * 0x1.0p53);
+	return (int) (x >>> (53 - bits));
+    }
+
+    // Moves the uniform numbers left to the front and fills the block up
+    private void refill(){
+	int left = end - next;
+	System.arraycopy(uniform, next, uniform, 0, left);
+	int n = uniform.length;
+	for (int i = left; i < n; i++)
+	    uniform[i] = source.nextDouble();
+	next = 0;
+	end = n;
+	kind = NONE;
+    }
+
+    // The logarithms of the exponential samples from here to the end
+    private void logUniforms(){
+	for (int i = next; i < end; i++)
+	    logs[i] = -Math.log(uniform[i]);
+	kind = EXPONENTIAL;
+    }
+
+    // The logarithms of the Erlang-k samples from here to the end: the
+    // products of k uniform numbers, kept above 1e-16 as nextErlang does
+    private void logProducts(int k){
+	int n = (end - next) / k;
+	for (int j = 0; j < n; j++) {
+	    double prod = 1.0;
+	    int base = next + j * k;
+	    for (int i = 0; i < k; i++)
+		prod *= uniform[base + i];
+	    logs[j] = (prod < 1e-16) ? 1e-16 : prod;
+	}
+	for (int j = 0; j < n; j++)
+	    logs[j] = -Math.log(logs[j]);
+	first = next;
+	kind = k;
+    }
+}
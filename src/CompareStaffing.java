@@ -0,0 +1,88 @@
+/**
+ * This class compares two staffing policies of Simulate3 on the difference
+ * in the fraction of customers waiting more than 6 minutes. The difference
+ * is estimated three ways with the same number of simulated days: with
+ * independent seeds for the two policies, with common random numbers, and
+ * with common random numbers in antithetic pairs, so the narrower intervals
+ * of the last two can be seen directly.
+ * 
+ * Usage: CompareStaffing [nservA thresholdA nservB thresholdB [trials]]
+ * 
+ * @version 18/10/26
+ */
+public class CompareStaffing {
+
+	public static void main(String[] args) {
+		final double lambdaA = 58.0;
+		final double lambdaS = 30.0;
+		final double tEnd = 8.0;
+		long seed = 12342;
+
+		// By default compare starting with 2 or with 3 servers
+		int nservA = 2, thresholdA = 6;
+		int nservB = 3, thresholdB = 6;
+		int trials = 200;
+		if (args.length >= 4) {
+			nservA = Integer.parseInt(args[0]);
+			thresholdA = Integer.parseInt(args[1]);
+			nservB = Integer.parseInt(args[2]);
+			thresholdB = Integer.parseInt(args[3]);
+		}
+		if (args.length >= 5)
+			trials = Integer.parseInt(args[4]);
+
+		ReplicationRunner runner = new ReplicationRunner();
+		RandomStreams.Replication a = policy(lambdaA, lambdaS, tEnd, nservA,
+				thresholdA);
+		RandomStreams.Replication b = policy(lambdaA, lambdaS, tEnd, nservB,
+				thresholdB);
+
+		System.out.println("Policy A: " + nservA + " servers, open above "
+				+ thresholdA + " waiting");
+		System.out.println("Policy B: " + nservB + " servers, open above "
+				+ thresholdB + " waiting");
+		System.out.println("Difference A-B in the fraction waiting more than 6 minutes, "
+				+ trials + " days per policy:");
+
+		// Independent: B runs on seeds no replication of A uses
+		OnlineStats independent = SimulationResult.fractionDifferenceStats(
+				runner.run(RandomStreams.common(a, seed, false), seed, trials),
+				runner.run(RandomStreams.common(b, seed + trials, false), seed
+						+ trials, trials), 1);
+		print("independent seeds         ", independent);
+
+		// Common random numbers: both policies on the same streams
+		OnlineStats common = SimulationResult.fractionDifferenceStats(
+				runner.run(RandomStreams.common(a, seed, false), seed, trials),
+				runner.run(RandomStreams.common(b, seed, false), seed, trials), 1);
+		print("common random numbers     ", common);
+
+		// Common random numbers in antithetic pairs
+		OnlineStats antithetic = SimulationResult.fractionDifferenceStats(
+				runner.run(RandomStreams.common(a, seed, true), seed, trials),
+				runner.run(RandomStreams.common(b, seed, true), seed, trials), 2);
+		print("common random + antithetic", antithetic);
+		runner.shutdown();
+	}
+
+	/**
+	 * A Simulate3 policy as a replication on separate streams
+	 */
+	private static RandomStreams.Replication policy(final double lambdaA,
+			final double lambdaS, final double tEnd, final int nserv,
+			final int threshold) {
+		return new RandomStreams.Replication() {
+			public SimulationResult run(long seed, MyRandom arrivals,
+					MyRandom services) {
+				return Simulate3.simulateNServers(lambdaA, lambdaS, tEnd, nserv,
+						threshold, Integer.MAX_VALUE, arrivals, services, seed,
+						NullTraceSink.INSTANCE);
+			}
+		};
+	}// End of policy method
+
+	private static void print(String label, OnlineStats stats) {
+		System.out.printf("  %s : %8.4f +- %.4f (95%% CI, sd %.4f)%n", label,
+				stats.mean(), stats.halfWidth(0.95), stats.stdDev());
+	}// End of print method
+}// End of Class
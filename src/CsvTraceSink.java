@@ -0,0 +1,108 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * This class implements a trace sink that writes one CSV record per event.
+ * Records are collected in a large character buffer and written out in
+ * batches, so logging a long run costs a few writes instead of a console
+ * print per event. The columns are
+ * type,event,clock,server,queue,value,total
+ * and unused columns are left empty.
+ *
+ * @version 18/10/26
+ */
+public class CsvTraceSink implements TraceSink {
+
+	// Size of the write buffer in characters
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final Writer out;
+	private final StringBuilder line = new StringBuilder(96);
+
+	/**
+	 * @param fileName The CSV file to write, replaced if it exists
+	 * @exception IOException if the file cannot be opened
+	 */
+	public CsvTraceSink(String fileName) throws IOException {
+		this(new FileWriter(fileName));
+	}
+
+	/**
+	 * @param out The writer to send the records to
+	 */
+	public CsvTraceSink(Writer out) {
+		this.out = new BufferedWriter(out, BUFFER_SIZE);
+		line.append("type,event,clock,server,queue,value,total\n");
+		write();
+	}
+
+	public void arrival(int te, int qLength, double clock) {
+		start("arrival", te, clock).append(',').append(qLength).append(",,\n");
+		write();
+	}
+
+	public void completion(int te, int server, int qLength, double clock) {
+		start("completion", te, clock).append(server).append(',')
+				.append(qLength).append(",,\n");
+		write();
+	}
+
+	public void served(int te, double clock, double wait) {
+		start("served", te, clock).append(",,").append(wait).append(",\n");
+		write();
+	}
+
+	public void serversFree(int te, double clock, int free, double timeFree,
+			double ttServer) {
+		start("free", te, clock).append(free).append(",,").append(timeFree)
+				.append(',').append(ttServer).append('\n');
+		write();
+	}
+
+	public void state(int te, double clock, int servers, double fraction) {
+		start("state", te, clock).append(servers).append(",,")
+				.append(fraction).append(",\n");
+		write();
+	}
+
+	public void hourlyServers(int te, double clock, int hour, double serverAvg) {
+		start("hour", te, clock).append(hour).append(",,").append(serverAvg)
+				.append(",\n");
+		write();
+	}
+
+	public void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Starts a record with the type, event number and clock columns
+	private StringBuilder start(String type, int te, double clock) {
+		return line.append(type).append(',').append(te).append(',')
+				.append(clock).append(',');
+	}
+
+	// Hands the record to the buffered writer and clears the line
+	private void write() {
+		try {
+			out.append(line);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		line.setLength(0);
+	}
+}// End of Class
@@ -0,0 +1,143 @@
+/**
+ * This class gives the steady state of a branch with a fixed number of
+ * servers and Poisson arrivals from queueing formulas, in no time. With
+ * exponential service (k = 1) these are the exact Erlang-C results of the
+ * M/M/c queue. For Erlang-k service the mean wait is the Allen-Cunneen
+ * approximation, the M/M/c wait scaled by (1 + 1/k)/2, the squared
+ * coefficients of variation of the arrivals and services averaged, and the
+ * wait of a customer who waits is taken to be exponential with that mean.
+ *
+ * A work-day starts empty and the steady state is where it ends up, so the
+ * formulas are the worst of a stable day. They are used to seed the search
+ * for a staffing level: a level they call feasible meets the target in a
+ * day as well, but one they call infeasible may not fail it, so it is only
+ * ruled out by simulating it.
+ *
+ * @version 18/10/26
+ */
+public class ErlangC {
+
+	/**
+	 * What the formulas say of a staffing level
+	 */
+	public enum Verdict {
+		/** Unstable, or far above the target in the steady state */
+		INFEASIBLE,
+		/** Too near the target to tell without simulating */
+		BORDERLINE,
+		/** Far below the target */
+		FEASIBLE
+	}
+
+	/**
+	 * How far, as a factor, an estimate must be from the target to be taken
+	 * without simulating
+	 */
+	public static final double MARGIN = 2.0;
+
+	private ErlangC() {
+	}
+
+	/**
+	 * The probability that a customer has to wait, Erlang's C formula
+	 *
+	 * @param c
+	 *            The number of servers
+	 * @param lambdaA
+	 *            The number of arrivals per hour
+	 * @param lambdaS
+	 *            The number of services per hour of one server
+	 * @return The probability, 1 if the queue is not stable
+	 */
+	public static double waitProbability(int c, double lambdaA, double lambdaS) {
+		double a = lambdaA / lambdaS; // The offered load in Erlangs
+		if (a >= c)
+			return 1.0;
+		// Erlang's B formula by its recurrence, which does not overflow
+		double b = 1.0;
+		for (int n = 1; n <= c; n++)
+			b = a * b / (n + a * b);
+		return b / (1.0 - a / c * (1.0 - b));
+	}// End of waitProbability method
+
+	/**
+	 * The mean wait in the queue, over all customers
+	 *
+	 * @param c
+	 *            The number of servers
+	 * @param lambdaA
+	 *            The number of arrivals per hour
+	 * @param lambdaS
+	 *            The number of services per hour of one server
+	 * @param k
+	 *            The shape of the Erlang service times, 1 for exponential
+	 * @return The mean wait in hours, infinite if the queue is not stable
+	 */
+	public static double meanWait(int c, double lambdaA, double lambdaS, int k) {
+		if (lambdaA >= c * lambdaS)
+			return Double.POSITIVE_INFINITY;
+		return waitProbability(c, lambdaA, lambdaS) / (c * lambdaS - lambdaA)
+				* variability(k);
+	}// End of meanWait method
+
+	/**
+	 * The probability that a customer waits longer than a time
+	 *
+	 * @param c
+	 *            The number of servers
+	 * @param lambdaA
+	 *            The number of arrivals per hour
+	 * @param lambdaS
+	 *            The number of services per hour of one server
+	 * @param k
+	 *            The shape of the Erlang service times, 1 for exponential
+	 * @param t
+	 *            The wait in hours, 0.1 for 6 minutes
+	 * @return The probability, 1 if the queue is not stable
+	 */
+	public static double waitTail(int c, double lambdaA, double lambdaS,
+			int k, double t) {
+		if (lambdaA >= c * lambdaS)
+			return 1.0;
+		return waitProbability(c, lambdaA, lambdaS)
+				* Math.exp(-t * (c * lambdaS - lambdaA) / variability(k));
+	}// End of waitTail method
+
+	/**
+	 * Screen a staffing level against a target for the fraction of customers
+	 * waiting longer than a time
+	 *
+	 * @param c
+	 *            The number of servers
+	 * @param lambdaA
+	 *            The number of arrivals per hour
+	 * @param lambdaS
+	 *            The number of services per hour of one server
+	 * @param k
+	 *            The shape of the Erlang service times, 1 for exponential
+	 * @param t
+	 *            The wait in hours, 0.1 for 6 minutes
+	 * @param target
+	 *            The largest fraction of customers waiting longer than t
+	 * @return INFEASIBLE if the queue is not stable or the estimate is
+	 *         MARGIN times the target or more, FEASIBLE if it is the target
+	 *         over MARGIN or less, BORDERLINE otherwise
+	 */
+	public static Verdict screen(int c, double lambdaA, double lambdaS, int k,
+			double t, double target) {
+		if (lambdaA >= c * lambdaS)
+			return Verdict.INFEASIBLE;
+		double p = waitTail(c, lambdaA, lambdaS, k, t);
+		if (p >= MARGIN * target)
+			return Verdict.INFEASIBLE;
+		if (p <= target / MARGIN)
+			return Verdict.FEASIBLE;
+		return Verdict.BORDERLINE;
+	}// End of screen method
+
+	// The Allen-Cunneen factor (ca^2 + cs^2)/2 of Poisson arrivals and
+	// Erlang-k services
+	private static double variability(int k) {
+		return (1.0 + 1.0 / k) / 2.0;
+	}
+}// End of Class
@@ -0,0 +1,252 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads the binary log of an EventLogSink. It is a cursor over
+ * the mapped file: next() decodes the next record in place and the fields of
+ * that record are read with the getters, so reading a log of any length
+ * copies no records and creates no objects.
+ *
+ * The fields follow the columns of a CsvTraceSink: the server is the id of
+ * the server of a completion, or the count of a free, state or hour record;
+ * the value is the wait, the time free, the fraction or the average of
+ * servers; the total is the total server free time.
+ *
+ * Usage: EventLogReader log-file [csv-file], writes the CSV to the console
+ * when no CSV file is given.
+ *
+ * @version 18/10/26
+ */
+public class EventLogReader implements AutoCloseable {
+
+	// Size of the part of the file mapped at a time
+	private static final int REGION = 64 << 20;
+
+	private static final String[] TYPES = { "arrival", "completion",
+			"served", "free", "state", "hour" };
+
+	private final FileChannel channel;
+	private final double tick;
+	private final long end; // The end of the records in the file
+	private MappedByteBuffer in; // The region being read
+	private long regionStart; // The offset of the region in the file
+
+	private byte type = -1;
+	private int event;
+	private long ticks;
+	private int server;
+	private int queue;
+	private double value;
+	private double total;
+
+	/**
+	 * Open a log, with the records written up to its last flush
+	 *
+	 * @param fileName The log file
+	 * @exception IOException if the file cannot be read or is not a log
+	 */
+	public EventLogReader(String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.READ);
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+				0, EventLogSink.HEADER);
+		if (header.getInt() != EventLogSink.MAGIC) {
+			channel.close();
+			throw new IOException("Not an event log");
+		}
+		if (header.getInt() != EventLogSink.VERSION) {
+			channel.close();
+			throw new IOException("Unknown event log version");
+		}
+		tick = header.getDouble();
+		end = header.getLong();
+		map(EventLogSink.HEADER);
+	}
+
+	/**
+	 * Move to the next record
+	 *
+	 * @return false at the end of the log
+	 */
+	public boolean next() {
+		long position = regionStart + in.position();
+		if (position >= end)
+			return false;
+		if (in.remaining() < EventLogSink.MAX_RECORD
+				&& regionStart + in.limit() < end)
+			map(position);
+		type = in.get();
+		event += (int) unZigZag(getVarint());
+		ticks += unZigZag(getVarint());
+		server = -1;
+		queue = -1;
+		value = Double.NaN;
+		total = Double.NaN;
+		switch (type) {
+		case EventLogSink.ARRIVAL:
+			queue = (int) getVarint();
+			break;
+		case EventLogSink.COMPLETION:
+			server = (int) getVarint();
+			queue = (int) getVarint();
+			break;
+		case EventLogSink.SERVED:
+			value = in.getDouble();
+			break;
+		case EventLogSink.FREE:
+			server = (int) getVarint();
+			value = in.getDouble();
+			total = in.getDouble();
+			break;
+		case EventLogSink.STATE:
+		case EventLogSink.HOUR:
+			server = (int) getVarint();
+			value = in.getDouble();
+			break;
+		default:
+			throw new IllegalStateException("Bad record type " + type
+					+ " at byte " + position);
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return The type of the record: arrival, completion, served, free,
+	 *         state or hour
+	 */
+	public String type() {
+		return TYPES[type];
+	}
+
+	/**
+	 *
+	 * @return The number of the event
+	 */
+	public int event() {
+		return event;
+	}
+
+	/**
+	 *
+	 * @return The time of the event, to the tick of the log
+	 */
+	public double clock() {
+		return ticks * tick;
+	}
+
+	/**
+	 *
+	 * @return The server id, or the count of the record; -1 if it has none
+	 */
+	public int server() {
+		return server;
+	}
+
+	/**
+	 *
+	 * @return The length of the queue; -1 if the record has none
+	 */
+	public int queue() {
+		return queue;
+	}
+
+	/**
+	 *
+	 * @return The value of the record; NaN if it has none
+	 */
+	public double value() {
+		return value;
+	}
+
+	/**
+	 *
+	 * @return The total server free time; NaN if the record has none
+	 */
+	public double total() {
+		return total;
+	}
+
+	public void close() throws IOException {
+		in = null;
+		channel.close();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0)
+			throw new IllegalArgumentException(
+					"Usage: EventLogReader log-file [csv-file]");
+		Writer out = new BufferedWriter(args.length > 1 ? new FileWriter(args[1])
+				: new OutputStreamWriter(System.out), 1 << 20);
+		try (EventLogReader log = new EventLogReader(args[0])) {
+			log.writeCsv(out);
+		}
+		out.close();
+	}
+
+	/**
+	 * Write the rest of the log in the CSV format of a CsvTraceSink
+	 *
+	 * @param out The writer to send the records to
+	 * @exception IOException if the writer fails
+	 */
+	public void writeCsv(Writer out) throws IOException {
+		StringBuilder line = new StringBuilder(96);
+		out.write("type,event,clock,server,queue,value,total\n");
+		while (next()) {
+			line.append(type()).append(',').append(event).append(',')
+					.append(clock()).append(',');
+			if (server >= 0)
+				line.append(server);
+			line.append(',');
+			if (queue >= 0)
+				line.append(queue);
+			line.append(',');
+			if (!Double.isNaN(value))
+				line.append(value);
+			line.append(',');
+			if (!Double.isNaN(total))
+				line.append(total);
+			line.append('\n');
+			out.append(line);
+			line.setLength(0);
+		}
+	}
+
+	// Maps the next region of the file, starting at an offset
+	private void map(long offset) {
+		try {
+			in = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+					Math.min(REGION, end - offset));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		regionStart = offset;
+	}
+
+	// Reads a varint of EventLogSink
+	private long getVarint() {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return v;
+	}
+
+	// Undoes the zig-zag of EventLogSink
+	private static long unZigZag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+}// End of Class
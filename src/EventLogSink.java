@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class implements a trace sink that appends the events to a compact
+ * binary log, written through a memory mapping of the file one region at a
+ * time. A record is a type byte, the event number and the clock, both as the
+ * varint of the difference from the previous record, then the fields of the
+ * type: server ids, queue lengths and counts as varints and the other values
+ * as 8-byte doubles. An arrival or a completion takes 4 to 8 bytes, against
+ * 30 to 40 characters of text.
+ *
+ * The clock is kept in whole ticks, 10^-9 hours by default, so the
+ * differences are small integers; the ticks are counted from 0, so the error
+ * of a clock read back is at most half a tick however long the log. A clock
+ * going back, as at the start of the next day, is a negative difference.
+ *
+ * The header holds the length of the records written so far and is brought
+ * up to date on every flush, so an EventLogReader can read a log whose run is
+ * still going. EventLogReader also turns a log into the CSV of a
+ * CsvTraceSink.
+ *
+ * @version 18/10/26
+ */
+public class EventLogSink implements TraceSink {
+
+	/**
+	 * The clock resolution by default, in hours
+	 */
+	public static final double DEFAULT_TICK = 1e-9;
+
+	// "QLOG", the first four bytes of a log
+	static final int MAGIC = 0x514C4F47;
+	static final int VERSION = 1;
+	// Magic, version, tick and the length of the records
+	static final int HEADER = 4 + 4 + 8 + 8;
+	// Longest record: type, two varint differences, a varint and two doubles
+	static final int MAX_RECORD = 1 + 10 + 10 + 5 + 8 + 8;
+
+	// The record types
+	static final byte ARRIVAL = 0;
+	static final byte COMPLETION = 1;
+	static final byte SERVED = 2;
+	static final byte FREE = 3;
+	static final byte STATE = 4;
+	static final byte HOUR = 5;
+
+	// Size of the part of the file mapped at a time
+	private static final int REGION = 64 << 20;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final double tick;
+	private MappedByteBuffer out; // The region being written
+	private long regionStart; // The offset of the region in the file
+	private int lastEvent; // The event number of the previous record
+	private long lastTicks; // The clock of the previous record, in ticks
+
+	/**
+	 * @param fileName The log file to write, replaced if it exists
+	 * @exception IOException if the file cannot be opened
+	 */
+	public EventLogSink(String fileName) throws IOException {
+		this(fileName, DEFAULT_TICK);
+	}
+
+	/**
+	 * @param fileName The log file to write, replaced if it exists
+	 * @param tick The resolution of the clock in the log, in hours
+	 * @exception IOException if the file cannot be opened
+	 */
+	public EventLogSink(String fileName, double tick) throws IOException {
+		this.tick = tick;
+		channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+		header.putInt(MAGIC).putInt(VERSION).putDouble(tick).putLong(0);
+		map(HEADER);
+	}
+
+	public void arrival(int te, int qLength, double clock) {
+		start(ARRIVAL, te, clock);
+		putVarint(qLength);
+	}
+
+	public void completion(int te, int server, int qLength, double clock) {
+		start(COMPLETION, te, clock);
+		putVarint(server);
+		putVarint(qLength);
+	}
+
+	public void served(int te, double clock, double wait) {
+		start(SERVED, te, clock);
+		out.putDouble(wait);
+	}
+
+	public void serversFree(int te, double clock, int free, double timeFree,
+			double ttServer) {
+		start(FREE, te, clock);
+		putVarint(free);
+		out.putDouble(timeFree).putDouble(ttServer);
+	}
+
+	public void state(int te, double clock, int servers, double fraction) {
+		start(STATE, te, clock);
+		putVarint(servers);
+		out.putDouble(fraction);
+	}
+
+	public void hourlyServers(int te, double clock, int hour, double serverAvg) {
+		start(HOUR, te, clock);
+		putVarint(hour);
+		out.putDouble(serverAvg);
+	}
+
+	/**
+	 * Publish the records written so far to readers of the log. The pages
+	 * are left to the operating system to write out.
+	 */
+	public void flush() {
+		header.putLong(HEADER - 8, length());
+	}
+
+	public void close() {
+		long length = length();
+		flush();
+		header.force();
+		out.force();
+		out = null;
+		try {
+			// Cut off the unused end of the last region
+			channel.truncate(length);
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of bytes in the log, with the header
+	 */
+	public long length() {
+		return regionStart + out.position();
+	}
+
+	// Starts a record with the type and the differences of event and clock
+	private void start(byte type, int te, double clock) {
+		if (out.remaining() < MAX_RECORD)
+			map(length());
+		long ticks = Math.round(clock / tick);
+		out.put(type);
+		putVarint(zigZag(te - lastEvent));
+		putVarint(zigZag(ticks - lastTicks));
+		lastEvent = te;
+		lastTicks = ticks;
+	}
+
+	// Maps the next region of the file, starting at an offset
+	private void map(long offset) {
+		try {
+			out = channel.map(FileChannel.MapMode.READ_WRITE, offset, REGION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		regionStart = offset;
+	}
+
+	// Writes a non-negative value, 7 bits a byte, the lowest bits first
+	private void putVarint(long v) {
+		while ((v & ~0x7FL) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+
+	// Maps small negative differences to small non-negative values
+	private static long zigZag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+}// End of Class
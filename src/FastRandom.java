@@ -0,0 +1,99 @@
+/**
+   This class is a drop-in replacement for MyRandom for single-threaded
+   simulations. It replaces the synchronised linear congruential generator
+   of java.util.Random with the xoshiro256** generator of Blackman and
+   Vigna, seeded through SplitMix64. The samplers nextExponential and
+   nextErlang are inherited, so they run on the fast generator. An instance
+   must not be shared between threads.
+   @version 18/10/26
+*/
+
+public class FastRandom extends MyRandom{
+
+    private static final long serialVersionUID = 1L;
+
+    // Generator state. The fields have no initialisers on purpose: the
+    // constructor of Random calls setSeed before they would run.
+    private long s0, s1, s2, s3;
+
+    /**
+       Constructor without seed: sequence of random numbers is always different
+    */
+    public FastRandom(){
+	this(System.nanoTime() ^ 0x5DEECE66DL);
+    }
+
+    /**
+	Constructor with seed: sequence of random numbers is always the same
+	(if the seed is the same)
+	@param seed the seed to be used
+    */
+    public FastRandom(long seed){
+	super(seed);
+    }
+
+    /**
+       Resets the generator to the state given by the seed
+       @param seed the seed to be used
+    */
+    @Override
+    public void setSeed(long seed){
+	long x = seed;
+	x += 0x9E3779B97F4A7C15L; s0 = mix(x);
+	x += 0x9E3779B97F4A7C15L; s1 = mix(x);
+	x += 0x9E3779B97F4A7C15L; s2 = mix(x);
+	x += 0x9E3779B97F4A7C15L; s3 = mix(x);
+    }
+
+    /**
+       Returns the next 64 random bits of the sequence
+       @return a uniformly distributed long
+    */
+    @Override
+    public long nextLong(){
+	long result = Long.rotateLeft(s1*5, 7)*9;
+	long t = s1 << 17;
+	s2 ^= s0;
+	s3 ^= s1;
+	s1 ^= s2;
+	s0 ^= s3;
+	s2 ^= t;
+	s3 = Long.rotateLeft(s3, 45);
+	return result;
+    }
+
+    /**
+       Returns a uniformly distributed double in [0,1) with 53 random bits
+       @return a uniformly distributed double
+    */
+    @Override
+    public double nextDouble(){
+	return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+       Returns the given number of random bits; used by the other methods
+       of java.util.Random
+       @param bits number of random bits
+       @return an int holding the random bits
+    */
+    @Override
+    protected int next(int bits){
+	return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+       Returns the four words of the generator state
+       @return a new array of the state
+    */
+    long[] state(){
+	return new long[] {s0, s1, s2, s3};
+    }
+
+    // SplitMix64 finaliser, spreads a seed over all 64 bits
+    static long mix(long z){
+	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * This class keeps track of which server positions are open and which of
+ * them are free. The free servers are bits of a long[] bitset indexed by the
+ * server id, and the open, free and busy counts are kept up to date on every
+ * change, so finding the first free server costs one Long.numberOfTrailingZeros
+ * per 64 servers and the counts are O(1).
+ *
+ * @version 18/10/26
+ */
+public class FreeServerSet {
+
+	private long[] open; // Bit i is set if server i is open
+	private long[] free; // Bit i is set if server i is open and free
+	private int openCount; // Number of open servers
+	private int freeCount; // Number of free servers
+
+	/**
+	 * Constructor: an empty set with room for the given number of ids
+	 *
+	 * @param capacity
+	 *            The initial number of server ids
+	 */
+	public FreeServerSet(int capacity) {
+		int words = Math.max(1, (capacity + 63) >>> 6);
+		open = new long[words];
+		free = new long[words];
+	}
+
+	/**
+	 * Open a server position, free to take a customer
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @exception IllegalArgumentException
+	 *                if the server is already open
+	 */
+	public void open(int i) {
+		int w = i >>> 6;
+		if (w >= open.length)
+			grow(w + 1);
+		long bit = 1L << i;
+		if ((open[w] & bit) != 0)
+			throw new IllegalArgumentException("Server already open: " + i);
+		open[w] |= bit;
+		free[w] |= bit;
+		openCount++;
+		freeCount++;
+	}
+
+	/**
+	 * Close a free server position
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @exception IllegalArgumentException
+	 *                if the server is not open and free
+	 */
+	public void close(int i) {
+		if (!isFree(i))
+			throw new IllegalArgumentException("Server not free: " + i);
+		long bit = 1L << i;
+		open[i >>> 6] &= ~bit;
+		free[i >>> 6] &= ~bit;
+		openCount--;
+		freeCount--;
+	}
+
+	/**
+	 * Mark an open server as busy
+	 *
+	 * @param i
+	 *            The id of the server
+	 */
+	public void setBusy(int i) {
+		if (isFree(i)) {
+			free[i >>> 6] &= ~(1L << i);
+			freeCount--;
+		}
+	}
+
+	/**
+	 * Mark an open server as free
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @exception IllegalArgumentException
+	 *                if the server is not open
+	 */
+	public void setFree(int i) {
+		if (!isOpen(i))
+			throw new IllegalArgumentException("Server not open: " + i);
+		int w = i >>> 6;
+		long bit = 1L << i;
+		if ((free[w] & bit) == 0) {
+			free[w] |= bit;
+			freeCount++;
+		}
+	}
+
+	/**
+	 * Returns true if the server position is open
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @return true if the server is open, false otherwise
+	 */
+	public boolean isOpen(int i) {
+		int w = i >>> 6;
+		return i >= 0 && w < open.length && (open[w] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Returns true if the server is open and free
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @return true if the server is free, false otherwise
+	 */
+	public boolean isFree(int i) {
+		int w = i >>> 6;
+		return i >= 0 && w < free.length && (free[w] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Find the free server with the lowest id
+	 *
+	 * @return The id of the first free server, -1 if none is free
+	 */
+	public int firstFree() {
+		if (freeCount == 0)
+			return -1;
+		for (int w = 0; w < free.length; w++) {
+			long word = free[w];
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the closed position with the lowest id, to be reused when a new
+	 * server is opened
+	 *
+	 * @return The lowest id that is not open
+	 */
+	public int firstClosed() {
+		for (int w = 0; w < open.length; w++) {
+			long word = ~open[w];
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		return open.length << 6;
+	}
+
+	/**
+	 * Returns the number of open servers
+	 *
+	 * @return The number of open servers
+	 */
+	public int openCount() {
+		return openCount;
+	}
+
+	/**
+	 * Returns the number of free servers
+	 *
+	 * @return The number of free servers
+	 */
+	public int freeCount() {
+		return freeCount;
+	}
+
+	/**
+	 * Returns the number of busy servers
+	 *
+	 * @return The number of busy servers
+	 */
+	public int busyCount() {
+		return openCount - freeCount;
+	}
+
+	private void grow(int minWords) {
+		int words = Math.max(minWords, 2 * open.length);
+		open = java.util.Arrays.copyOf(open, words);
+		free = java.util.Arrays.copyOf(free, words);
+	}
+}// End of Class
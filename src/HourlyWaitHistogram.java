@@ -0,0 +1,142 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This class keeps one WaitHistogram for every hour of the work-day, the
+ * same hours as the arrival rates of Simulate3. A wait is counted in the
+ * hour the customer arrived. A histogram of a whole day wraps around, so a
+ * run of many days counts every hour of the day over all of them.
+ *
+ * @version 18/10/26
+ */
+public class HourlyWaitHistogram {
+
+	/**
+	 * The hours of a day, the most a run keeps apart
+	 */
+	public static final int DAY = 24;
+
+	private final WaitHistogram[] hours;
+
+	/**
+	 * @param tEnd
+	 *            The time until the end of the work-day, in hours
+	 */
+	public HourlyWaitHistogram(double tEnd) {
+		int n = Math.max(1, (int) Math.ceil(tEnd));
+		hours = new WaitHistogram[n];
+		for (int i = 0; i < n; i++)
+			hours[i] = new WaitHistogram();
+	}
+
+	/**
+	 * Record the waiting time of a customer
+	 *
+	 * @param arrival
+	 *            The time the customer arrived
+	 * @param wait
+	 *            The waiting time in hours
+	 */
+	public void record(double arrival, double wait) {
+		long hour = (long) arrival;
+		if (hour >= hours.length)
+			hour = (hours.length == DAY) ? hour % DAY : hours.length - 1;
+		else if (hour < 0)
+			hour = 0;
+		hours[(int) hour].record(wait);
+	}
+
+	/**
+	 *
+	 * @return The number of hours
+	 */
+	public int hours() {
+		return hours.length;
+	}
+
+	/**
+	 * @param hour
+	 *            The hour of the day, from 0
+	 * @return The histogram of the customers arriving in that hour
+	 */
+	public WaitHistogram hour(int hour) {
+		return hours[hour];
+	}
+
+	/**
+	 *
+	 * @return A new histogram of the whole day
+	 */
+	public WaitHistogram day() {
+		WaitHistogram day = new WaitHistogram();
+		for (WaitHistogram h : hours)
+			day.merge(h);
+		return day;
+	}
+
+	/**
+	 * Add the counts of another day to this one, hour by hour
+	 *
+	 * @param other
+	 *            The histograms to merge in, with the same number of hours
+	 */
+	public void merge(HourlyWaitHistogram other) {
+		if (other.hours.length != hours.length)
+			throw new IllegalArgumentException("Days of different length");
+		for (int i = 0; i < hours.length; i++)
+			hours[i].merge(other.hours[i]);
+	}
+
+	/**
+	 * Prints the count, mean and the 50th, 90th and 99th percentiles of the
+	 * waits, in minutes, for every hour and for the whole day
+	 */
+	public void print() {
+		System.out.println("hour  customers  mean(min)  p50(min)  p90(min)  p99(min)");
+		for (int i = 0; i < hours.length; i++)
+			printRow(String.valueOf(i), hours[i]);
+		printRow("day", day());
+	}
+
+	/**
+	 * Write the histograms to a buffer, for a snapshot of a run
+	 *
+	 * @param out
+	 *            The buffer to write to
+	 */
+	void write(ByteBuffer out) {
+		out.putInt(hours.length);
+		for (WaitHistogram h : hours)
+			h.write(out);
+	}
+
+	/**
+	 * Read histograms written by write
+	 *
+	 * @param in
+	 *            The buffer to read from
+	 * @return New histograms with those counts
+	 */
+	static HourlyWaitHistogram read(ByteBuffer in) {
+		HourlyWaitHistogram h = new HourlyWaitHistogram(in.getInt());
+		for (int i = 0; i < h.hours.length; i++)
+			h.hours[i] = WaitHistogram.read(in);
+		return h;
+	}
+
+	/**
+	 *
+	 * @return The number of bytes write needs
+	 */
+	int bytes() {
+		int bytes = 4;
+		for (WaitHistogram h : hours)
+			bytes += h.bytes();
+		return bytes;
+	}
+
+	private static void printRow(String label, WaitHistogram h) {
+		System.out.printf("%4s  %9d  %9.2f  %8.2f  %8.2f  %8.2f%n", label,
+				h.count(), 60 * h.mean(), 60 * h.percentile(50),
+				60 * h.percentile(90), 60 * h.percentile(99));
+	}
+}// End of Class
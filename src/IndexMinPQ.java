@@ -0,0 +1,250 @@
+/**
+ * This class implements an indexed binary min-heap of double keys, used to
+ * keep the completion times of the servers in order. Every server is known by
+ * its integer id, so its completion time can be changed or removed in
+ * O(log n) without searching the heap. Ties are broken on the lower id, so
+ * the heap returns the same server a linear scan over the ids would.
+ *
+ * @version 18/10/26
+ */
+public class IndexMinPQ {
+
+	private int n; // Number of ids on the heap
+	private int[] pq; // Binary heap of ids, 1-based
+	private int[] qp; // Inverse of pq: position of id i in pq, -1 if absent
+	private double[] keys; // Key of id i
+
+	/**
+	 * Constructor: creates an empty heap for ids 0 to capacity-1. The capacity
+	 * grows when a larger id is inserted.
+	 *
+	 * @param capacity
+	 *            The initial number of ids
+	 */
+	public IndexMinPQ(int capacity) {
+		if (capacity < 1)
+			capacity = 1;
+		n = 0;
+		pq = new int[capacity + 1];
+		qp = new int[capacity];
+		keys = new double[capacity];
+		java.util.Arrays.fill(qp, -1);
+	}
+
+	/**
+	 * Returns true if the id is on the heap
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @return true if the id is on the heap, false otherwise
+	 */
+	public boolean contains(int i) {
+		return i >= 0 && i < qp.length && qp[i] != -1;
+	}
+
+	/**
+	 * Returns the number of ids on the heap
+	 *
+	 * @return size of the heap
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Returns true if the heap is empty
+	 *
+	 * @return true if the heap is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return n == 0;
+	}
+
+	/**
+	 * Put an id on the heap with the given key
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @param key
+	 *            The completion time of the server
+	 * @exception IllegalArgumentException
+	 *                if the id is already on the heap
+	 */
+	public void insert(int i, double key) {
+		if (i < 0)
+			throw new IndexOutOfBoundsException("Negative id: " + i);
+		if (i >= qp.length)
+			grow(i + 1);
+		if (qp[i] != -1)
+			throw new IllegalArgumentException("Id already on heap: " + i);
+		n++;
+		qp[i] = n;
+		pq[n] = i;
+		keys[i] = key;
+		swim(n);
+	}
+
+	/**
+	 * Returns the id with the lowest key
+	 *
+	 * @return The id of the server with the lowest completion time
+	 * @exception IndexOutOfBoundsException
+	 *                if the heap is empty
+	 */
+	public int minIndex() {
+		if (n == 0)
+			throw new IndexOutOfBoundsException("Heap is empty");
+		return pq[1];
+	}
+
+	/**
+	 * Returns the lowest key on the heap
+	 *
+	 * @return The lowest completion time
+	 * @exception IndexOutOfBoundsException
+	 *                if the heap is empty
+	 */
+	public double minKey() {
+		if (n == 0)
+			throw new IndexOutOfBoundsException("Heap is empty");
+		return keys[pq[1]];
+	}
+
+	/**
+	 * Returns the key of an id
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @return The completion time of the server
+	 */
+	public double keyOf(int i) {
+		checkContains(i);
+		return keys[i];
+	}
+
+	/**
+	 * Change the key of an id, moving it up or down the heap as needed
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @param key
+	 *            The new completion time of the server
+	 */
+	public void changeKey(int i, double key) {
+		checkContains(i);
+		double old = keys[i];
+		keys[i] = key;
+		if (key < old)
+			swim(qp[i]);
+		else if (key > old)
+			sink(qp[i]);
+	}
+
+	/**
+	 * Decrease the key of an id
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @param key
+	 *            The new completion time, not larger than the current one
+	 */
+	public void decreaseKey(int i, double key) {
+		checkContains(i);
+		if (key > keys[i])
+			throw new IllegalArgumentException("Key would increase");
+		keys[i] = key;
+		swim(qp[i]);
+	}
+
+	/**
+	 * Increase the key of an id
+	 *
+	 * @param i
+	 *            The id of the server
+	 * @param key
+	 *            The new completion time, not smaller than the current one
+	 */
+	public void increaseKey(int i, double key) {
+		checkContains(i);
+		if (key < keys[i])
+			throw new IllegalArgumentException("Key would decrease");
+		keys[i] = key;
+		sink(qp[i]);
+	}
+
+	/**
+	 * Remove an id from the heap
+	 *
+	 * @param i
+	 *            The id of the server
+	 */
+	public void delete(int i) {
+		checkContains(i);
+		int pos = qp[i];
+		exch(pos, n--);
+		if (pos <= n) {
+			swim(pos);
+			sink(pos);
+		}
+		qp[i] = -1;
+	}
+
+	/**
+	 * Remove every id from the heap
+	 */
+	public void clear() {
+		for (int j = 1; j <= n; j++)
+			qp[pq[j]] = -1;
+		n = 0;
+	}
+
+	private void checkContains(int i) {
+		if (!contains(i))
+			throw new IndexOutOfBoundsException("Id not on heap: " + i);
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, 2 * qp.length);
+		int oldLength = qp.length;
+		pq = java.util.Arrays.copyOf(pq, capacity + 1);
+		qp = java.util.Arrays.copyOf(qp, capacity);
+		keys = java.util.Arrays.copyOf(keys, capacity);
+		java.util.Arrays.fill(qp, oldLength, capacity, -1);
+	}
+
+	// Heap order on the key, then on the id
+	private boolean greater(int a, int b) {
+		double ka = keys[pq[a]];
+		double kb = keys[pq[b]];
+		if (ka != kb)
+			return ka > kb;
+		return pq[a] > pq[b];
+	}
+
+	private void exch(int a, int b) {
+		int swap = pq[a];
+		pq[a] = pq[b];
+		pq[b] = swap;
+		qp[pq[a]] = a;
+		qp[pq[b]] = b;
+	}
+
+	private void swim(int j) {
+		while (j > 1 && greater(j / 2, j)) {
+			exch(j, j / 2);
+			j = j / 2;
+		}
+	}
+
+	private void sink(int j) {
+		while (2 * j <= n) {
+			int c = 2 * j;
+			if (c < n && greater(c, c + 1))
+				c++;
+			if (!greater(j, c))
+				break;
+			exch(j, c);
+			j = c;
+		}
+	}
+}// End of Class
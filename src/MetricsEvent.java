@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is the flight recorder event with the SimulationMetrics of the
+ * JVM, written once a second while a recording is on.
+ *
+ * @version 18/10/26
+ */
+@Name("Simulate.Metrics")
+@Label("Simulation Metrics")
+@Category("Simulation")
+@Description("Events, queue and replications of the simulations")
+@Period("1 s")
+@StackTrace(false)
+public class MetricsEvent extends Event {
+
+	@Label("Events")
+	long events;
+
+	@Label("Events per Second")
+	double eventsPerSecond;
+
+	@Label("Queue Length")
+	int queueLength;
+
+	@Label("Open Servers")
+	int openServers;
+
+	@Label("Replications Done")
+	long replicationsDone;
+
+	@Label("Replications Total")
+	long replicationsTotal;
+}// End of Class
@@ -0,0 +1,41 @@
+/**
+ * This class implements a trace sink that discards every event, for runs
+ * where only the summary statistics are needed.
+ *
+ * @version 18/10/26
+ */
+public final class NullTraceSink implements TraceSink {
+
+	/**
+	 * The single instance, the sink holds no state
+	 */
+	public static final NullTraceSink INSTANCE = new NullTraceSink();
+
+	private NullTraceSink() {
+	}
+
+	public void arrival(int te, int qLength, double clock) {
+	}
+
+	public void completion(int te, int server, int qLength, double clock) {
+	}
+
+	public void served(int te, double clock, double wait) {
+	}
+
+	public void serversFree(int te, double clock, int free, double timeFree,
+			double ttServer) {
+	}
+
+	public void state(int te, double clock, int servers, double fraction) {
+	}
+
+	public void hourlyServers(int te, double clock, int hour, double serverAvg) {
+	}
+
+	public void flush() {
+	}
+
+	public void close() {
+	}
+}// End of Class
@@ -0,0 +1,223 @@
+/**
+ * This class accumulates the mean and variance of a stream of values with
+ * Welford's method, without keeping the values. It is used for the waiting
+ * times of one run and for the results of a set of replications, and gives
+ * Student-t confidence intervals on the mean. Two accumulators can be merged,
+ * so replications run on different threads can be combined.
+ *
+ * @version 18/10/26
+ */
+public class OnlineStats {
+
+	private long n; // Number of values
+	private double mean; // Running mean
+	private double m2; // Sum of squared differences from the mean
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Add a value to the accumulator
+	 *
+	 * @param x
+	 *            The value
+	 */
+	public void add(double x) {
+		n++;
+		double delta = x - mean;
+		mean += delta / n;
+		m2 += delta * (x - mean);
+		if (x < min)
+			min = x;
+		if (x > max)
+			max = x;
+	}
+
+	/**
+	 * Add the values of another accumulator to this one
+	 *
+	 * @param other
+	 *            The accumulator to merge in
+	 */
+	public void merge(OnlineStats other) {
+		if (other.n == 0)
+			return;
+		if (n == 0) {
+			n = other.n;
+			mean = other.mean;
+			m2 = other.m2;
+			min = other.min;
+			max = other.max;
+			return;
+		}
+		long total = n + other.n;
+		double delta = other.mean - mean;
+		mean += delta * other.n / total;
+		m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+		n = total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Remove every value from the accumulator
+	 */
+	public void clear() {
+		n = 0;
+		mean = 0.0;
+		m2 = 0.0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 *
+	 * @return The number of values
+	 */
+	public long count() {
+		return n;
+	}
+
+	/**
+	 *
+	 * @return The mean of the values, NaN if there are none
+	 */
+	public double mean() {
+		return (n == 0) ? Double.NaN : mean;
+	}
+
+	/**
+	 *
+	 * @return The sample variance, NaN if there are fewer than two values
+	 */
+	public double variance() {
+		return (n < 2) ? Double.NaN : m2 / (n - 1);
+	}
+
+	/**
+	 *
+	 * @return The sample standard deviation
+	 */
+	public double stdDev() {
+		return Math.sqrt(variance());
+	}
+
+	/**
+	 *
+	 * @return The standard error of the mean
+	 */
+	public double stdError() {
+		return Math.sqrt(variance() / n);
+	}
+
+	/**
+	 *
+	 * @return The smallest value
+	 */
+	public double min() {
+		return min;
+	}
+
+	/**
+	 *
+	 * @return The largest value
+	 */
+	public double max() {
+		return max;
+	}
+
+	/**
+	 * Half-width of the Student-t confidence interval on the mean
+	 *
+	 * @param confidence
+	 *            The confidence level, e.g. 0.95
+	 * @return The half-width, NaN if there are fewer than two values
+	 */
+	public double halfWidth(double confidence) {
+		if (n < 2)
+			return Double.NaN;
+		return tQuantile(0.5 + confidence / 2, n - 1) * stdError();
+	}
+
+	/**
+	 * Formats the mean with its confidence interval as "mean +- half-width"
+	 *
+	 * @param confidence
+	 *            The confidence level, e.g. 0.95
+	 * @return The formatted interval
+	 */
+	public String toString(double confidence) {
+		return mean() + " +- " + halfWidth(confidence) + " ("
+				+ Math.round(100 * confidence) + "% CI, n=" + n + ")";
+	}
+
+	/**
+	 * Quantile of the Student-t distribution. Exact for one and two degrees
+	 * of freedom, a Cornish-Fisher expansion around the normal quantile
+	 * otherwise.
+	 *
+	 * @param p
+	 *            The probability, between 0 and 1
+	 * @param df
+	 *            The degrees of freedom
+	 * @return The p-quantile
+	 */
+	public static double tQuantile(double p, long df) {
+		if (df == 1)
+			return Math.tan(Math.PI * (p - 0.5));
+		if (df == 2)
+			return (2 * p - 1) / Math.sqrt(2 * p * (1 - p));
+		double z = normalQuantile(p);
+		double v = df;
+		double z2 = z * z;
+		double z3 = z2 * z;
+		double z5 = z3 * z2;
+		double z7 = z5 * z2;
+		double z9 = z7 * z2;
+		return z + (z3 + z) / (4 * v)
+				+ (5 * z5 + 16 * z3 + 3 * z) / (96 * v * v)
+				+ (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * v * v * v)
+				+ (79 * z9 + 776 * z7 + 1482 * z5 - 1920 * z3 - 945 * z)
+				/ (92160 * v * v * v * v);
+	}
+
+	/**
+	 * Quantile of the standard normal distribution, by Acklam's rational
+	 * approximation (relative error below 1.2e-9)
+	 *
+	 * @param p
+	 *            The probability, between 0 and 1
+	 * @return The p-quantile
+	 */
+	public static double normalQuantile(double p) {
+		if (p <= 0)
+			return Double.NEGATIVE_INFINITY;
+		if (p >= 1)
+			return Double.POSITIVE_INFINITY;
+		final double a1 = -3.969683028665376e+01, a2 = 2.209460984245205e+02;
+		final double a3 = -2.759285104469687e+02, a4 = 1.383577518672690e+02;
+		final double a5 = -3.066479806614716e+01, a6 = 2.506628277459239e+00;
+		final double b1 = -5.447609879822406e+01, b2 = 1.615858368580409e+02;
+		final double b3 = -1.556989798598866e+02, b4 = 6.680131188771972e+01;
+		final double b5 = -1.328068155288572e+01;
+		final double c1 = -7.784894002430293e-03, c2 = -3.223964580411365e-01;
+		final double c3 = -2.400758277161838e+00, c4 = -2.549732539343734e+00;
+		final double c5 = 4.374664141464968e+00, c6 = 2.938163982698783e+00;
+		final double d1 = 7.784695709041462e-03, d2 = 3.224671290700398e-01;
+		final double d3 = 2.445134137142996e+00, d4 = 3.754408661907416e+00;
+		final double low = 0.02425;
+		if (p < low) {
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c1 * q + c2) * q + c3) * q + c4) * q + c5) * q + c6)
+					/ ((((d1 * q + d2) * q + d3) * q + d4) * q + 1);
+		}
+		if (p > 1 - low) {
+			double q = Math.sqrt(-2 * Math.log(1 - p));
+			return -(((((c1 * q + c2) * q + c3) * q + c4) * q + c5) * q + c6)
+					/ ((((d1 * q + d2) * q + d3) * q + d4) * q + 1);
+		}
+		double q = p - 0.5;
+		double r = q * q;
+		return (((((a1 * r + a2) * r + a3) * r + a4) * r + a5) * r + a6) * q
+				/ (((((b1 * r + b2) * r + b3) * r + b4) * r + b5) * r + 1);
+	}
+}// End of Class
@@ -0,0 +1,97 @@
+import java.io.PrintStream;
+
+/**
+ * This class implements a trace sink that prints the events in the text
+ * format the simulators have always written to the console.
+ *
+ * @version 18/10/26
+ */
+public class PrintTraceSink implements TraceSink {
+
+	private final PrintStream out;
+	private final boolean singleServer;
+	// Simulate1 prints a customer served at a completion after the
+	// completion, so the wait is held back until then
+	private boolean servedPending;
+	private double pendingWait;
+
+	/**
+	 * @param out The stream to print to
+	 * @param singleServer Use the Simulate1 format for the events
+	 */
+	public PrintTraceSink(PrintStream out, boolean singleServer) {
+		this.out = out;
+		this.singleServer = singleServer;
+	}
+
+	public void arrival(int te, int qLength, double clock) {
+		if (singleServer) {
+			flushServed();
+			out.println(te + "  " + "Arivl" + "  " + qLength + "  " + clock);
+			// An empty queue after an arrival: the customer went straight
+			// to the server
+			if (qLength == 0)
+				out.println("Guy is served, has waited: " + 0.0);
+		} else
+			out.println(te + "  " + "arrival" + "  " + qLength + " " + clock);
+	}
+
+	public void completion(int te, int server, int qLength, double clock) {
+		if (singleServer) {
+			// Simulate1 prints the queue before the customer left it
+			out.println(te + "  " + "Compl" + "  "
+					+ (servedPending ? qLength + 1 : qLength) + "  " + clock);
+			flushServed();
+		} else
+			out.println(te + "  " + "compl_" + (server + 1) + "  " + qLength
+					+ " " + clock);
+	}
+
+	public void served(int te, double clock, double wait) {
+		if (singleServer) {
+			flushServed();
+			servedPending = true;
+			pendingWait = wait;
+		} else
+			out.println("Guy is served, has waited: " + wait);
+	}
+
+	public void serversFree(int te, double clock, int free, double timeFree,
+			double ttServer) {
+		if (singleServer) {
+			flushServed();
+			out.println("Server is free for: " + timeFree
+					+ "  tt server free yet: " + ttServer);
+		} else
+			out.println(free + " server(s) are free for " + timeFree
+					+ " hours. Total= " + ttServer);
+	}
+
+	public void state(int te, double clock, int servers, double fraction) {
+		flushServed();
+		out.println("fraction: " + fraction);
+		out.println("servers: " + servers);
+	}
+
+	public void hourlyServers(int te, double clock, int hour, double serverAvg) {
+		flushServed();
+		out.println("Avg servers for hour " + hour + " : " + serverAvg);
+	}
+
+	public void flush() {
+		flushServed();
+		out.flush();
+	}
+
+	public void close() {
+		flush();
+	}
+
+	// Prints a served customer held back for its completion
+	private void flushServed() {
+		if (servedPending) {
+			servedPending = false;
+			out.println("Guy is served, has waited: " + pendingWait);
+		}
+	}
+}// End of Class
@@ -1,6 +1,9 @@
 /**
    This class implements a simple FIFO (first-in-first-out) stack of 
-   double values that can be used as a queue.
+   double values that can be used as a queue. The values are kept in a
+   ring buffer that reuses the slots of customers already taken off the
+   queue and doubles in size when it is full, so the queue never runs out
+   of space and its memory only depends on the longest queue seen.
    @author Andreas Grothey
    @version 08/01/03
  */
@@ -9,28 +12,36 @@ public class Queue{
     double [] list;
     int next_on_q;
     int next_off_q;
-    int mx_q;
+    int size;
 
     /**
-       Constructor: default maximum queue length is 5000
+       Constructor: default initial capacity is 64
     */
     public Queue(){
-	mx_q = 5000;
-	list = new double[mx_q];
+	this(64);
+    }
+
+    /**
+       Constructor with initial capacity
+       @param capacity number of values that fit before the buffer grows
+    */
+    public Queue(int capacity){
+	if (capacity<1) capacity = 1;
+	list = new double[capacity];
 	next_on_q = 0;
 	next_off_q = 0;
+	size = 0;
     }
 
     /** 
 	Put a double value (i.e. arrival time) on the queue
 	@param clock value to be put on queue (arrival time of customer)
-	@exception IndexOutOfBoundsException if maximal queue length reached (5000 by default)
     */
     public void put(double clock){
-	if (next_on_q>=mx_q-1) {
-	    throw new IndexOutOfBoundsException("Maximal Queue size reached");
-	}
-	list[next_on_q++] = clock;
+	if (size==list.length) grow();
+	list[next_on_q] = clock;
+	if (++next_on_q==list.length) next_on_q = 0;
+	size++;
     }
 
     /** 
@@ -39,10 +50,13 @@ public class Queue{
 	@exception IndexOutOfBoundsException if queue is empty
     */
     public double get(){
-	if (next_off_q>=next_on_q){
+	if (size==0){
 	    throw new IndexOutOfBoundsException("No one in queue");
 	}
-	return list[next_off_q++];
+	double clock = list[next_off_q];
+	if (++next_off_q==list.length) next_off_q = 0;
+	size--;
+	return clock;
     }
 
     /**
@@ -50,7 +64,22 @@ public class Queue{
        @return length of queue
     */
     public int length(){
-	return next_on_q - next_off_q;
+	return size;
+    }
+
+    /**
+       Returns a value in the queue without taking it off
+       @param i position in the queue, 0 for the next one off
+       @return the double value at that position
+       @exception IndexOutOfBoundsException if the queue is not that long
+    */
+    public double peek(int i){
+	if (i<0 || i>=size){
+	    throw new IndexOutOfBoundsException("No one at position "+i);
+	}
+	int j = next_off_q + i;
+	if (j>=list.length) j -= list.length;
+	return list[j];
     }
 
     /**
@@ -58,7 +87,21 @@ public class Queue{
        @return true is queue is empty, false otherwise
      */
     public boolean isEmpty(){
-	return (length()==0);
+	return (size==0);
+    }
+
+    /**
+       Doubles the capacity of the buffer, unwrapping the values so that
+       the head of the queue is at position 0
+    */
+    private void grow(){
+	double [] bigger = new double[2*list.length];
+	int head = list.length - next_off_q;
+	System.arraycopy(list, next_off_q, bigger, 0, head);
+	System.arraycopy(list, 0, bigger, head, next_off_q);
+	list = bigger;
+	next_off_q = 0;
+	next_on_q = size;
     }
 
     /**
@@ -66,9 +109,9 @@ public class Queue{
      */
     public void print(){
       System.out.println("Length of Queue: "+length());
-      for(int i=next_off_q;i<next_on_q;i++){
+      for(int i=0;i<size;i++){
 	System.out.printf("Position %3d arrived at %9.5f\n",
-			  i-next_off_q+1, list[i]);
+			  i+1, list[(next_off_q+i)%list.length]);
 
       }
     }
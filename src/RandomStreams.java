@@ -0,0 +1,111 @@
+/**
+ * This class hands out the random number streams of a replication. Every
+ * replication seed gives one stream for the arrivals and an independent one
+ * for the service times, so configurations compared on the same seeds use
+ * common random numbers: the same customers arrive at the same times and
+ * need the same service, whatever the number of servers or the threshold.
+ * With antithetic pairs, replications 2i and 2i+1 share a seed and the
+ * second one runs on the complements of the uniforms of the first. Each
+ * stream is used for one kind of random number only, so it is buffered: its
+ * samples are made a block at a time by a BufferedRandom.
+ *
+ * @version 18/10/26
+ */
+public class RandomStreams {
+
+	// Stream numbers mixed into the replication seed
+	private static final long ARRIVALS = 1;
+	private static final long SERVICES = 2;
+
+	private RandomStreams() {
+	}
+
+	/**
+	 * A single replication run on separate arrival and service streams
+	 */
+	public interface Replication {
+		/**
+		 * @param seed The replication seed the streams were made from
+		 * @param arrivals The stream of inter-arrival times
+		 * @param services The stream of service times
+		 * @return The summary statistics of the replication
+		 */
+		SimulationResult run(long seed, MyRandom arrivals, MyRandom services);
+	}
+
+	/**
+	 * The stream of inter-arrival times of a replication
+	 *
+	 * @param seed
+	 *            The replication seed
+	 * @param antithetic
+	 *            Return the antithetic twin of the stream
+	 * @return The stream
+	 */
+	public static MyRandom arrivals(long seed, boolean antithetic) {
+		return stream(seed, ARRIVALS, antithetic);
+	}
+
+	/**
+	 * The stream of service times of a replication
+	 *
+	 * @param seed
+	 *            The replication seed
+	 * @param antithetic
+	 *            Return the antithetic twin of the stream
+	 * @return The stream
+	 */
+	public static MyRandom services(long seed, boolean antithetic) {
+		return stream(seed, SERVICES, antithetic);
+	}
+
+	/**
+	 * Turns a replication on separate streams into one the ReplicationRunner
+	 * can run. Replication i gets the streams of seed baseSeed+i; with
+	 * antithetic pairs it gets those of baseSeed+i/2, complemented when i is
+	 * odd.
+	 *
+	 * @param replication
+	 *            The replication to run
+	 * @param baseSeed
+	 *            The seed given to the ReplicationRunner
+	 * @param antithetic
+	 *            Run the replications in antithetic pairs
+	 * @return The replication for the runner
+	 */
+	public static ReplicationRunner.Replication common(
+			final Replication replication, final long baseSeed,
+			final boolean antithetic) {
+		return new ReplicationRunner.Replication() {
+			public SimulationResult run(long seed) {
+				long i = seed - baseSeed;
+				boolean twin = antithetic && (i & 1) == 1;
+				long s = antithetic ? baseSeed + i / 2 : seed;
+				return replication.run(s, arrivals(s, twin), services(s, twin));
+			}
+		};
+	}
+
+	/**
+	 * The seed of the generator of stream number n of a replication. The
+	 * pair goes through the SplitMix64 finaliser twice, so the seeds of
+	 * neighbouring replications and streams are unrelated: FastRandom steps
+	 * its seed by the golden ratio to make its state, and seeds a multiple
+	 * of that apart would give states that share words.
+	 *
+	 * @param seed
+	 *            The replication seed
+	 * @param n
+	 *            The stream number
+	 * @return The seed of the generator
+	 */
+	static long seed(long seed, long n) {
+		return FastRandom.mix(FastRandom.mix(seed) + n);
+	}
+
+	private static MyRandom stream(long seed, long n, boolean antithetic) {
+		long s = seed(seed, n);
+		return new BufferedRandom(antithetic ? new AntitheticRandom(s)
+				: new FastRandom(s));
+	}
+}// End of Class
@@ -0,0 +1,176 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class holds a piecewise-constant arrival rate over the work-day, in
+ * buckets of equal width from time 0: one rate per hour, per 5 minutes, or
+ * any other step. The rate at a time is found in O(1) from the index of its
+ * bucket. After the last bucket the rate is 0.
+ *
+ * Arrivals are drawn by inverting the integrated rate: a unit exponential is
+ * spent bucket by bucket at the rate of each bucket, so a gap that crosses
+ * the edge of a bucket uses the right rate on either side, and every arrival
+ * takes exactly one random number.
+ *
+ * A table file has one bucket per line, "start rate", separated by blanks or
+ * a comma: the start of the bucket in minutes from the opening and the
+ * number of arrivals per hour. The starts must begin at 0 and go up in equal
+ * steps. Blank lines and lines starting with # are skipped.
+ *
+ * @version 18/10/26
+ */
+public class RateTable {
+
+	private final double width; // Width of a bucket, in hours
+	private final double[] rates; // Arrivals per hour of every bucket
+
+	/**
+	 * @param width
+	 *            The width of a bucket, in hours
+	 * @param rates
+	 *            The number of arrivals per hour in every bucket from 0
+	 */
+	public RateTable(double width, double[] rates) {
+		if (!(width > 0))
+			throw new IllegalArgumentException("Bucket width must be positive");
+		for (double rate : rates)
+			if (!(rate >= 0))
+				throw new IllegalArgumentException("Negative rate " + rate);
+		this.width = width;
+		this.rates = rates.clone();
+	}
+
+	/**
+	 * Read a table from a file
+	 *
+	 * @param file
+	 *            The name of the file
+	 * @return The table
+	 * @exception IOException
+	 *                if the file cannot be read or is malformed
+	 */
+	public static RateTable load(String file) throws IOException {
+		double[] starts = new double[16];
+		double[] rates = new double[16];
+		int n = 0;
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineNo = 0;
+			while ((line = in.readLine()) != null) {
+				lineNo++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("[\\s,]+");
+				if (fields.length != 2)
+					throw new IOException(file + ":" + lineNo
+							+ ": expected \"start rate\"");
+				if (n == starts.length) {
+					starts = Arrays.copyOf(starts, 2 * n);
+					rates = Arrays.copyOf(rates, 2 * n);
+				}
+				try {
+					starts[n] = Double.parseDouble(fields[0]);
+					rates[n] = Double.parseDouble(fields[1]);
+				} catch (NumberFormatException e) {
+					throw new IOException(file + ":" + lineNo + ": "
+							+ e.getMessage());
+				}
+				n++;
+			}
+		}
+		if (n == 0)
+			throw new IOException(file + ": no rates");
+		if (starts[0] != 0.0)
+			throw new IOException(file + ": the first bucket must start at 0");
+		// A single bucket covers the hour
+		double step = (n > 1) ? starts[1] - starts[0] : 60.0;
+		for (int i = 1; i < n; i++)
+			if (Math.abs(starts[i] - i * step) > 1e-9 * step)
+				throw new IOException(file + ": bucket " + i
+						+ " does not start " + step + " minutes after the last");
+		try {
+			return new RateTable(step / 60.0, Arrays.copyOf(rates, n));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The rate at a time
+	 *
+	 * @param t
+	 *            The time in hours
+	 * @return The number of arrivals per hour
+	 */
+	public double rate(double t) {
+		int i = (int) (t / width);
+		return (t >= 0 && i < rates.length) ? rates[i] : 0.0;
+	}
+
+	/**
+	 * The rate of a bucket
+	 *
+	 * @param bucket
+	 *            The bucket, from 0
+	 * @return The number of arrivals per hour
+	 */
+	public double bucketRate(int bucket) {
+		return rates[bucket];
+	}
+
+	/**
+	 * The time of the next arrival, by inversion of the integrated rate
+	 *
+	 * @param t
+	 *            The time of the last arrival, in hours
+	 * @param e
+	 *            A unit exponential random number
+	 * @return The time of the next arrival, infinite if there is none
+	 */
+	public double next(double t, double e) {
+		int i = (t > 0) ? (int) (t / width) : 0;
+		if (t < 0)
+			t = 0;
+		while (i < rates.length) {
+			double end = (i + 1) * width;
+			double rate = rates[i];
+			if (rate > 0) {
+				double dt = e / rate;
+				if (t + dt < end)
+					return t + dt;
+				// Spend the rest of this bucket and go on to the next
+				e = Math.max(0.0, e - rate * (end - t));
+			}
+			t = end;
+			i++;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 *
+	 * @return The width of a bucket, in hours
+	 */
+	public double width() {
+		return width;
+	}
+
+	/**
+	 *
+	 * @return The number of buckets
+	 */
+	public int buckets() {
+		return rates.length;
+	}
+
+	/**
+	 *
+	 * @return The end of the last bucket, in hours
+	 */
+	public double end() {
+		return rates.length * width;
+	}
+}// End of Class
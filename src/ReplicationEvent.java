@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is the flight recorder event of one replication run by a
+ * ReplicationRunner, timed from its start to its end.
+ *
+ * @version 18/10/26
+ */
+@Name("Simulate.Replication")
+@Label("Replication")
+@Category("Simulation")
+@Description("A replication of a simulated work-day")
+@StackTrace(false)
+public class ReplicationEvent extends Event {
+
+	@Label("Seed")
+	long seed;
+
+	@Label("Events")
+	int events;
+
+	@Label("Customers Served")
+	int served;
+
+	@Label("Fraction Waiting >6min")
+	double fraction;
+}// End of Class
@@ -0,0 +1,114 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class runs independent replications of a simulation on a fork-join
+ * pool. Replication i is run with the seed baseSeed+i and writes its result
+ * into slot i of the results array, so no locks are needed and the results
+ * are the same for a given base seed whatever the number of threads.
+ * Every replication is counted in the SimulationMetrics and recorded as a
+ * ReplicationEvent; the MBean is left to the main method to register.
+ *
+ * @version 18/10/26
+ */
+public class ReplicationRunner {
+
+	/**
+	 * A single replication of a simulated work-day
+	 */
+	public interface Replication {
+		/**
+		 * @param seed The seed of the random number generator
+		 * @return The summary statistics of the replication
+		 */
+		SimulationResult run(long seed);
+	}
+
+	// Replications per task below which a task is not split any further
+	private static final int THRESHOLD = 4;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor: one thread per available core
+	 */
+	public ReplicationRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads The number of threads to run the replications on
+	 */
+	public ReplicationRunner(int threads) {
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	/**
+	 * Run a number of replications with consecutive seeds.
+	 *
+	 * @param replication The replication to run
+	 * @param baseSeed The seed of the first replication
+	 * @param trials The number of replications
+	 * @return The results, in seed order
+	 */
+	public SimulationResult[] run(Replication replication, long baseSeed,
+			int trials) {
+		SimulationResult[] results = new SimulationResult[trials];
+		SimulationMetrics.INSTANCE.replicationsStarted(trials);
+		pool.invoke(new Task(replication, baseSeed, results, 0, trials));
+		return results;
+	}
+
+	/**
+	 * Stops the threads of the pool
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Runs the replications [from, to) by splitting the range in halves
+	 */
+	private static class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Replication replication;
+		private final long baseSeed;
+		private final SimulationResult[] results;
+		private final int from;
+		private final int to;
+
+		Task(Replication replication, long baseSeed,
+				SimulationResult[] results, int from, int to) {
+			this.replication = replication;
+			this.baseSeed = baseSeed;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					ReplicationEvent event = new ReplicationEvent();
+					event.begin();
+					results[i] = replication.run(baseSeed + i);
+					event.end();
+					if (event.shouldCommit()) {
+						event.seed = baseSeed + i;
+						event.events = results[i].getEvents();
+						event.served = results[i].getServed();
+						event.fraction = results[i].getFraction();
+						event.commit();
+					}
+					SimulationMetrics.INSTANCE.replicationDone();
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Task(replication, baseSeed, results, from, mid),
+					new Task(replication, baseSeed, results, mid, to));
+		}
+	}
+}// End of Class
@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the results of replications on disk between runs, so a
+ * sweep run again only simulates the scenarios and seeds it has not seen. A
+ * result is found by a 64-bit key, the SHA-256 of the description of the
+ * scenario, the seed and the version of the code: the digest of the classes
+ * the results are made by, so results of older code are never found and age
+ * out.
+ *
+ * The cache is held in memory while it is open, in the order of last use, and
+ * the results used least recently are dropped once it is over its size. The
+ * file is read when the cache is opened and written again, in that order,
+ * when it is closed. get and put may be called from several threads at once.
+ *
+ * @version 18/10/26
+ */
+public class ResultCache implements AutoCloseable {
+
+	/**
+	 * The size of a cache by default, in bytes
+	 */
+	public static final long DEFAULT_BYTES = 256L << 20;
+
+	// "QRES", the first four bytes of a cache file
+	private static final int MAGIC = 0x51524553;
+	private static final int VERSION = 1;
+	// The key and length stored with every result
+	private static final int ENTRY = 8 + 4;
+
+	// The classes that decide the result of a replication
+	private static final String[] MODEL = { "SimulationKernel",
+			"SimulationState", "SimulationResult", "ServerPool",
+			"FreeServerSet", "IndexMinPQ", "Queue", "ArrivalProcess",
+			"ServiceDistribution", "StaffingPolicy", "Transfers", "RateTable",
+			"MyRandom", "FastRandom", "AntitheticRandom", "BufferedRandom",
+			"RandomStreams",
+			"BatchMeans", "WaitHistogram", "HourlyWaitHistogram",
+			"ScenarioRunner$Scenario" };
+	private static final byte[] CODE_VERSION = codeVersion();
+
+	private final Path file;
+	private final long maxBytes;
+	// The results by key, the least recently used first
+	private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<Long, byte[]>(
+			1024, 0.75f, true);
+	private long bytes; // The size of the entries in the file
+	private boolean changed;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Open a cache of the default size
+	 *
+	 * @param fileName The cache file, made on close if it does not exist
+	 * @exception IOException if the file cannot be read or is not a cache
+	 */
+	public ResultCache(String fileName) throws IOException {
+		this(fileName, DEFAULT_BYTES);
+	}
+
+	/**
+	 * @param fileName The cache file, made on close if it does not exist
+	 * @param maxBytes The largest size of the file
+	 * @exception IOException if the file cannot be read or is not a cache
+	 */
+	public ResultCache(String fileName, long maxBytes) throws IOException {
+		if (maxBytes > Integer.MAX_VALUE - 12)
+			throw new IllegalArgumentException("Cache larger than 2 GB");
+		this.file = Paths.get(fileName);
+		this.maxBytes = maxBytes;
+		if (Files.exists(file))
+			load();
+	}
+
+	/**
+	 * The key of a replication
+	 *
+	 * @param scenario Everything about the scenario that changes the results
+	 * @param seed The seed of the replication
+	 * @return The key, for the code this cache was loaded with
+	 */
+	public static long key(String scenario, long seed) {
+		MessageDigest sha = sha256();
+		sha.update(CODE_VERSION);
+		sha.update(scenario.getBytes(StandardCharsets.UTF_8));
+		sha.update(ByteBuffer.allocate(8).putLong(seed).array());
+		return ByteBuffer.wrap(sha.digest()).getLong();
+	}
+
+	/**
+	 * The result of a replication, if it has been cached
+	 *
+	 * @param key The key of the replication
+	 * @return A new copy of the result, null if it is not in the cache
+	 */
+	public SimulationResult get(long key) {
+		byte[] entry;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			changed = true; // The order of use
+		}
+		return SimulationResult.read(ByteBuffer.wrap(entry));
+	}
+
+	/**
+	 * Keep the result of a replication, dropping the results used least
+	 * recently while the cache is too big
+	 *
+	 * @param key The key of the replication
+	 * @param result The result
+	 */
+	public void put(long key, SimulationResult result) {
+		ByteBuffer out = ByteBuffer.allocate(result.bytes());
+		result.write(out);
+		byte[] entry = Arrays.copyOf(out.array(), out.position());
+		synchronized (this) {
+			add(key, entry);
+			changed = true;
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of results found by get
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 *
+	 * @return The number of results not found by get
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 *
+	 * @return The number of results in the cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the cache to its file, if it has been used since it was opened.
+	 * The file is replaced in one step, so a run that is stopped leaves the
+	 * old cache whole.
+	 *
+	 * @exception IOException if the file cannot be written
+	 */
+	public synchronized void close() throws IOException {
+		if (!changed)
+			return;
+		ByteBuffer out = ByteBuffer.allocate((int) (12 + bytes));
+		out.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+		for (Map.Entry<Long, byte[]> e : entries.entrySet())
+			out.putLong(e.getKey()).putInt(e.getValue().length)
+					.put(e.getValue());
+		out.flip();
+		Path temp = Paths.get(file + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining())
+				channel.write(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		changed = false;
+	}
+
+	// Reads the file, in the order of use it was written in
+	private void load() throws IOException {
+		ByteBuffer in;
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (in.remaining() < 12 || in.getInt() != MAGIC)
+			throw new IOException(file + ": not a result cache");
+		if (in.getInt() != VERSION)
+			throw new IOException(file + ": unknown result cache version");
+		int n = in.getInt();
+		for (int i = 0; i < n; i++) {
+			long key = in.getLong();
+			byte[] entry = new byte[in.getInt()];
+			in.get(entry);
+			add(key, entry);
+		}
+	}
+
+	// Puts an entry last in the order of use and keeps the cache in size
+	private void add(long key, byte[] entry) {
+		byte[] old = entries.put(key, entry);
+		if (old != null)
+			bytes -= ENTRY + old.length;
+		bytes += ENTRY + entry.length;
+		Iterator<byte[]> eldest = entries.values().iterator();
+		while (bytes > maxBytes && entries.size() > 1) {
+			bytes -= ENTRY + eldest.next().length;
+			eldest.remove();
+		}
+	}
+
+	// The digest of the class files of the model, with their inner classes
+	private static byte[] codeVersion() {
+		MessageDigest sha = sha256();
+		byte[] buffer = new byte[8192];
+		for (String name : MODEL) {
+			for (int i = 0;; i++) {
+				String resource = name + ((i == 0) ? "" : "$" + i) + ".class";
+				try (InputStream in = ResultCache.class
+						.getResourceAsStream("/" + resource)) {
+					if (in == null)
+						break;
+					int read;
+					while ((read = in.read(buffer)) > 0)
+						sha.update(buffer, 0, read);
+				} catch (IOException e) {
+					throw new IllegalStateException("Cannot read " + resource, e);
+				}
+			}
+		}
+		return sha.digest();
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}// End of Class
@@ -0,0 +1,554 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class runs a grid of scenarios read from a file, all in one JVM. The
+ * replications of all the scenarios are shared out over the threads of one
+ * ReplicationRunner, so a sweep of hundreds of small scenarios keeps every
+ * core busy, and every replication runs on the common random numbers of its
+ * seed.
+ *
+ * A scenario file is CSV with a header row, or JSON: an array of objects.
+ * The fields, all optional, are
+ * name, lambdaA (one rate for the whole day), rates (hourly rates separated
+ * by ';' or a JSON array, or the name of a RateTable file), lambdaS, k,
+ * nserv, tEnd, threshold (no threshold is fixed staffing), maxServers,
+ * replications and seed. A scenario without lambdaA or rates has the rates
+ * of Simulate3. A scenario with fewer than one replication, Erlang phase or
+ * server, fewer maxServers than servers, or no positive lambdaS or tEnd is
+ * refused with the file and line it starts on.
+ *
+ * The results are written as one columnar file, one row per replication,
+ * little-endian: the int "QCOL", the version, the number of rows, columns
+ * and scenarios; the scenario names, then the column names, each a short
+ * length and UTF-8 bytes; then every column in turn as doubles. In R a
+ * column is one readBin of n doubles. A summary of every scenario is printed
+ * as it is.
+ *
+ * With a cache file, the results of the replications are kept in a
+ * ResultCache of that many megabytes, 256 by default, and a replication run
+ * before with the same scenario, seed and code is read back from it instead.
+ *
+ * Usage: ScenarioRunner scenario-file results-file [threads [cache-file
+ * [cache-MB]]]
+ *
+ * @version 18/10/26
+ */
+public class ScenarioRunner {
+
+	// "QCOL", the first four bytes of a results file
+	private static final int MAGIC = 0x51434F4C;
+	private static final int VERSION = 1;
+
+	/**
+	 * The columns of the results file
+	 */
+	public static final String[] COLUMNS = { "scenario", "seed", "arrivals",
+			"served", "wait6", "fraction", "waitMinutes", "maxQueue",
+			"avgQueue", "utilization", "serverHours", "events" };
+
+	// The replications run at a time; only their results are kept whole
+	private static final int BLOCK = 1024;
+
+	/**
+	 * A scenario of the grid
+	 */
+	public static class Scenario {
+		final String name;
+		final RateTable rates; // null for a constant rate
+		final double lambdaA;
+		final double lambdaS;
+		final int k;
+		final int nserv;
+		final double tEnd;
+		final int threshold; // -1 for fixed staffing
+		final int maxServers;
+		final int replications;
+		final long seed;
+
+		/**
+		 * @param fields
+		 *            The fields of the scenario by name
+		 * @param defaultName
+		 *            The name if it has none
+		 * @param where
+		 *            The file and line of the scenario, for the errors
+		 * @exception IOException
+		 *                if a field is not valid or a rates file cannot be
+		 *                read
+		 */
+		Scenario(Map<String, String> fields, String defaultName, String where)
+				throws IOException {
+			try {
+				name = fields.getOrDefault("name", defaultName);
+				String lambda = fields.get("lambdaa");
+				String table = fields.get("rates");
+				lambdaA = (lambda != null) ? Double.parseDouble(lambda) : 0.0;
+				rates = (lambda != null) ? null : (table == null) ? Simulate3.RATES
+						: rates(table);
+				lambdaS = number(fields, "lambdas", 30.0);
+				k = (int) number(fields, "k", 3);
+				nserv = (int) number(fields, "nserv", 2);
+				tEnd = number(fields, "tend", 8.0);
+				threshold = (int) number(fields, "threshold", -1);
+				maxServers = (int) number(fields, "maxservers",
+						Integer.MAX_VALUE);
+				replications = (int) number(fields, "replications", 100);
+				seed = (long) number(fields, "seed", 12342);
+			} catch (NumberFormatException e) {
+				throw new IOException(where + ": " + e.getMessage());
+			}
+			if (replications < 1)
+				throw new IOException(where + ": replications must be at least 1");
+			if (k < 1)
+				throw new IOException(where + ": k must be at least 1");
+			if (nserv < 1)
+				throw new IOException(where + ": nserv must be at least 1");
+			if (maxServers < nserv)
+				throw new IOException(where
+						+ ": maxservers must be at least nserv");
+			if (!(lambdaS > 0.0) || !(tEnd > 0.0))
+				throw new IOException(where
+						+ ": lambdas and tend must be positive");
+		}
+
+		/**
+		 *
+		 * @return Everything about the scenario that changes its results,
+		 *         for the key of a ResultCache
+		 */
+		String key() {
+			StringBuilder key = new StringBuilder();
+			if (rates == null) {
+				key.append("poisson ").append(lambdaA);
+			} else {
+				key.append("rates ").append(rates.width());
+				for (int i = 0; i < rates.buckets(); i++)
+					key.append(' ').append(rates.bucketRate(i));
+			}
+			return key.append(" erlang ").append(k).append(' ')
+					.append(lambdaS).append(" nserv ").append(nserv)
+					.append(" threshold ").append(threshold).append(' ')
+					.append(maxServers).append(" tEnd ").append(tEnd)
+					.toString();
+		}
+
+		/**
+		 * Run one day of the scenario
+		 *
+		 * @param seed
+		 *            The replication seed
+		 * @return The statistics of the day
+		 */
+		SimulationResult run(long seed) {
+			SimulationKernel kernel = new SimulationKernel(
+					(rates == null) ? ArrivalProcess.poisson(lambdaA, tEnd)
+							: ArrivalProcess.nonHomogeneous(rates, tEnd),
+					ServiceDistribution.erlang(k, lambdaS),
+					(threshold < 0) ? StaffingPolicy.FIXED : StaffingPolicy
+							.threshold(nserv, threshold, maxServers), nserv,
+					tEnd);
+			return kernel.run(RandomStreams.arrivals(seed, false),
+					RandomStreams.services(seed, false), seed,
+					NullTraceSink.INSTANCE);
+		}
+
+		// Hourly rates separated by ';', or the name of a rates file
+		private static RateTable rates(String table) throws IOException {
+			String[] fields = table.trim().split("\\s*;\\s*");
+			double[] hourly = new double[fields.length];
+			try {
+				for (int i = 0; i < fields.length; i++)
+					hourly[i] = Double.parseDouble(fields[i]);
+			} catch (NumberFormatException e) {
+				return RateTable.load(table);
+			}
+			return new RateTable(1.0, hourly);
+		}
+
+		private static double number(Map<String, String> fields, String key,
+				double otherwise) {
+			String value = fields.get(key);
+			return (value == null || value.isEmpty()) ? otherwise : Double
+					.parseDouble(value);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2)
+			throw new IllegalArgumentException(
+					"Usage: ScenarioRunner scenario-file results-file [threads [cache-file [cache-MB]]]");
+		List<Scenario> scenarios = read(args[0]);
+		SimulationMetrics.register();
+		ReplicationRunner runner = (args.length > 2) ? new ReplicationRunner(
+				Integer.parseInt(args[2])) : new ReplicationRunner();
+		ResultCache cache = (args.length <= 3) ? null
+				: (args.length > 4) ? new ResultCache(args[3],
+						Long.parseLong(args[4]) << 20) : new ResultCache(args[3]);
+
+		long start = System.nanoTime();
+		double[][] columns = run(scenarios, runner, cache);
+		runner.shutdown();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		write(args[1], scenarios, columns);
+		if (cache != null)
+			cache.close();
+
+		System.out.println("scenario,replications,fraction,fractionHalfWidth,"
+				+ "waitMinutes,waitHalfWidth,avgQueue,utilization,serverHours");
+		int row = 0;
+		for (Scenario scenario : scenarios) {
+			OnlineStats fraction = new OnlineStats();
+			OnlineStats wait = new OnlineStats();
+			OnlineStats queue = new OnlineStats();
+			OnlineStats rho = new OnlineStats();
+			OnlineStats cost = new OnlineStats();
+			for (int i = 0; i < scenario.replications; i++, row++) {
+				fraction.add(columns[5][row]);
+				wait.add(columns[6][row]);
+				queue.add(columns[8][row]);
+				rho.add(columns[9][row]);
+				cost.add(columns[10][row]);
+			}
+			System.out.println(String.format(Locale.ROOT,
+					"%s,%d,%.5f,%.5f,%.4f,%.4f,%.4f,%.4f,%.3f", scenario.name,
+					scenario.replications, fraction.mean(),
+					fraction.halfWidth(0.95), wait.mean(), wait.halfWidth(0.95),
+					queue.mean(), rho.mean(), cost.mean()));
+		}
+		System.out.println(row + " replications of "
+				+ scenarios.size() + " scenarios in " + seconds + " s, written to "
+				+ args[1]);
+		if (cache != null)
+			System.out.println(cache.hits() + " replications from the cache, "
+					+ cache.misses() + " simulated, " + cache.size()
+					+ " in the cache");
+	}
+
+	/**
+	 * Run every replication of every scenario
+	 *
+	 * @param scenarios
+	 *            The scenarios
+	 * @param runner
+	 *            The runner to share the replications over
+	 * @return The columns of the results, a row for every replication by
+	 *         scenario and then by replication
+	 */
+	public static double[][] run(List<Scenario> scenarios,
+			ReplicationRunner runner) {
+		return run(scenarios, runner, null);
+	}
+
+	/**
+	 * Run every replication of every scenario that is not in a cache, and
+	 * keep the new results in the cache. The replications are run a block at
+	 * a time and the results of a block are cut down to their rows, so the
+	 * memory does not grow with the number of replications.
+	 *
+	 * @param scenarios
+	 *            The scenarios
+	 * @param runner
+	 *            The runner to share the replications over
+	 * @param cache
+	 *            The results of earlier runs; null for none
+	 * @return The columns of the results, a row for every replication by
+	 *         scenario and then by replication
+	 */
+	public static double[][] run(List<Scenario> scenarios,
+			ReplicationRunner runner, final ResultCache cache) {
+		int rows = 0;
+		for (Scenario scenario : scenarios)
+			rows += scenario.replications;
+		// Row i is replication rep[i] of scenario of[i]
+		final Scenario[] of = new Scenario[rows];
+		final String[] keys = new String[rows];
+		final int[] rep = new int[rows];
+		double[][] columns = new double[COLUMNS.length][rows];
+		int row = 0;
+		for (int s = 0; s < scenarios.size(); s++) {
+			Scenario scenario = scenarios.get(s);
+			String key = (cache == null) ? null : scenario.key();
+			for (int i = 0; i < scenario.replications; i++, row++) {
+				of[row] = scenario;
+				keys[row] = key;
+				rep[row] = i;
+				columns[0][row] = s;
+			}
+		}
+		ReplicationRunner.Replication day = r -> {
+			Scenario scenario = of[(int) r];
+			long seed = scenario.seed + rep[(int) r];
+			if (cache == null)
+				return scenario.run(seed);
+			long key = ResultCache.key(keys[(int) r], seed);
+			SimulationResult result = cache.get(key);
+			if (result == null) {
+				result = scenario.run(seed);
+				cache.put(key, result);
+			}
+			return result;
+		};
+		for (int from = 0; from < rows; from += BLOCK) {
+			SimulationResult[] results = runner.run(day, from,
+					Math.min(BLOCK, rows - from));
+			for (int i = 0; i < results.length; i++) {
+				SimulationResult r = results[i];
+				int at = from + i;
+				columns[1][at] = r.getSeed();
+				columns[2][at] = r.getArrivals();
+				columns[3][at] = r.getServed();
+				columns[4][at] = r.getWait6();
+				columns[5][at] = r.getFraction();
+				columns[6][at] = 60 * r.getAverageWait();
+				columns[7][at] = r.getMaxQueueLength();
+				columns[8][at] = r.getAverageQueueLength();
+				columns[9][at] = r.getUtilization();
+				columns[10][at] = r.getServerHours();
+				columns[11][at] = r.getEvents();
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Read a scenario file, JSON if it starts with '[', CSV otherwise
+	 *
+	 * @param file
+	 *            The name of the file
+	 * @return The scenarios, in the order of the file
+	 * @exception IOException
+	 *                if the file cannot be read or is not valid
+	 */
+	public static List<Scenario> read(String file) throws IOException {
+		String text = new String(Files.readAllBytes(Paths.get(file)),
+				StandardCharsets.UTF_8);
+		List<String> where = new ArrayList<String>(); // The line of each row
+		List<Map<String, String>> rows = text.trim().startsWith("[") ? new Json(
+				file, text).rows(where) : csv(file, where);
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (Map<String, String> fields : rows)
+			scenarios.add(new Scenario(fields, file + ":"
+					+ (scenarios.size() + 1), where.get(scenarios.size())));
+		if (scenarios.isEmpty())
+			throw new IOException(file + ": no scenarios");
+		return scenarios;
+	}
+
+	/**
+	 * Write the results as a columnar file
+	 *
+	 * @param file
+	 *            The name of the file, replaced if it exists
+	 * @param scenarios
+	 *            The scenarios
+	 * @param columns
+	 *            The columns of run()
+	 * @exception IOException
+	 *                if the file cannot be written
+	 */
+	public static void write(String file, List<Scenario> scenarios,
+			double[][] columns) throws IOException {
+		int rows = columns[0].length;
+		List<byte[]> names = new ArrayList<byte[]>();
+		for (Scenario scenario : scenarios)
+			names.add(scenario.name.getBytes(StandardCharsets.UTF_8));
+		for (String column : COLUMNS)
+			names.add(column.getBytes(StandardCharsets.UTF_8));
+		int size = 5 * 4 + 8 * rows * COLUMNS.length;
+		for (byte[] name : names)
+			size += 2 + name.length;
+
+		ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(COLUMNS.length)
+				.putInt(scenarios.size());
+		for (byte[] name : names)
+			out.putShort((short) name.length).put(name);
+		for (double[] column : columns)
+			for (double value : column)
+				out.putDouble(value);
+		out.flip();
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining())
+				channel.write(out);
+		}
+	}
+
+	// The rows of a CSV file with a header, keyed by lower-case column name,
+	// and the file and line of each row
+	private static List<Map<String, String>> csv(String file,
+			List<String> where) throws IOException {
+		List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String[] header = null;
+			String line;
+			int lineNo = 0;
+			while ((line = in.readLine()) != null) {
+				lineNo++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("\\s*,\\s*", -1);
+				if (header == null) {
+					header = fields;
+					continue;
+				}
+				if (fields.length != header.length)
+					throw new IOException(file + ":" + lineNo + ": expected "
+							+ header.length + " fields");
+				Map<String, String> row = new HashMap<String, String>();
+				for (int i = 0; i < fields.length; i++)
+					if (!fields[i].isEmpty())
+						row.put(header[i].toLowerCase(Locale.ROOT), fields[i]);
+				rows.add(row);
+				where.add(file + ":" + lineNo);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads a JSON array of flat objects. Numbers and strings are kept as
+	 * text and an array of numbers becomes its values separated by ';'.
+	 */
+	private static class Json {
+		private final String file;
+		private final String text;
+		private int at;
+
+		Json(String file, String text) {
+			this.file = file;
+			this.text = text;
+		}
+
+		// The objects, and the file and line where each starts
+		List<Map<String, String>> rows(List<String> where) throws IOException {
+			List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+			expect('[');
+			if (peek() == ']') {
+				at++;
+				return rows;
+			}
+			do {
+				peek();
+				where.add(file + ":" + line());
+				rows.add(object());
+			} while (comma(']'));
+			return rows;
+		}
+
+		// The line of the current character, from 1
+		private int line() {
+			int line = 1;
+			for (int i = 0; i < at; i++)
+				if (text.charAt(i) == '\n')
+					line++;
+			return line;
+		}
+
+		private Map<String, String> object() throws IOException {
+			Map<String, String> row = new HashMap<String, String>();
+			expect('{');
+			if (peek() == '}') {
+				at++;
+				return row;
+			}
+			do {
+				String key = string();
+				expect(':');
+				row.put(key.toLowerCase(Locale.ROOT), value());
+			} while (comma('}'));
+			return row;
+		}
+
+		private String value() throws IOException {
+			char c = peek();
+			if (c == '"')
+				return string();
+			if (c == '[') {
+				at++;
+				StringBuilder list = new StringBuilder();
+				if (peek() == ']') {
+					at++;
+					return "";
+				}
+				do {
+					if (list.length() > 0)
+						list.append(';');
+					list.append(value());
+				} while (comma(']'));
+				return list.toString();
+			}
+			int start = at;
+			while (at < text.length() && ",}] \t\r\n".indexOf(text.charAt(at)) < 0)
+				at++;
+			String literal = text.substring(start, at);
+			if (literal.isEmpty())
+				throw error("expected a value");
+			return literal.equals("null") ? "" : literal;
+		}
+
+		private String string() throws IOException {
+			expect('"');
+			StringBuilder s = new StringBuilder();
+			while (at < text.length() && text.charAt(at) != '"') {
+				char c = text.charAt(at++);
+				if (c == '\\' && at < text.length()) {
+					c = text.charAt(at++);
+					if (c == 'n')
+						c = '\n';
+					else if (c == 't')
+						c = '\t';
+				}
+				s.append(c);
+			}
+			expect('"');
+			return s.toString();
+		}
+
+		// Reads ',' and returns true, or the closing character and false
+		private boolean comma(char close) throws IOException {
+			char c = peek();
+			at++;
+			if (c == ',')
+				return true;
+			if (c == close)
+				return false;
+			throw error("expected ',' or '" + close + "'");
+		}
+
+		private void expect(char c) throws IOException {
+			if (peek() != c)
+				throw error("expected '" + c + "'");
+			at++;
+		}
+
+		// The next character that is not blank
+		private char peek() throws IOException {
+			while (at < text.length() && Character.isWhitespace(text.charAt(at)))
+				at++;
+			if (at == text.length())
+				throw error("unexpected end");
+			return text.charAt(at);
+		}
+
+		private IOException error(String message) {
+			return new IOException(file + ": character " + at + ": " + message);
+		}
+	}
+}// End of Class
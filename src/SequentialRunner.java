@@ -0,0 +1,135 @@
+/**
+ * This class runs replications in batches until a statistic is known to a
+ * target precision: after every batch the half-width of the confidence
+ * interval on the mean is checked, and the run stops once it is at most the
+ * target or the maximum number of replications is reached. Easy scenarios
+ * stop after a few batches and borderline ones get as many as they need.
+ *
+ * The batches use consecutive seeds from the base seed and every batch is
+ * run on the ReplicationRunner, so the answer is the same whatever the
+ * number of threads. Only the batch being run is held: the results are
+ * handed to an Observer as they come, so a run of many replications takes
+ * no more memory than a short one.
+ *
+ * @version 18/10/26
+ */
+public class SequentialRunner {
+
+	/**
+	 * The statistic of a replication whose mean is to be estimated
+	 */
+	public interface Statistic {
+		/**
+		 * @param result The result of a replication
+		 * @return The value of the statistic
+		 */
+		double of(SimulationResult result);
+	}
+
+	/**
+	 * Receives the replications of a run, in seed order
+	 */
+	public interface Observer {
+		/**
+		 * @param result The result of the next replication
+		 */
+		void add(SimulationResult result);
+	}
+
+	/**
+	 * The fraction of customers waiting more than 6 minutes
+	 */
+	public static final Statistic FRACTION = new Statistic() {
+		public double of(SimulationResult result) {
+			return result.getFraction();
+		}
+	};
+
+	/**
+	 * The average waiting time in hours
+	 */
+	public static final Statistic AVERAGE_WAIT = new Statistic() {
+		public double of(SimulationResult result) {
+			return result.getAverageWait();
+		}
+	};
+
+	private final ReplicationRunner runner;
+	private final Statistic statistic;
+	private final double halfWidth;
+	private final double confidence;
+	private final int batch;
+	private final int maxTrials;
+
+	/**
+	 * @param runner
+	 *            The runner for each batch
+	 * @param statistic
+	 *            The statistic whose mean is estimated
+	 * @param halfWidth
+	 *            The target half-width of the confidence interval
+	 * @param confidence
+	 *            The confidence level, e.g. 0.95
+	 * @param batch
+	 *            The number of replications per batch, at least 2
+	 * @param maxTrials
+	 *            The largest number of replications to run
+	 */
+	public SequentialRunner(ReplicationRunner runner, Statistic statistic,
+			double halfWidth, double confidence, int batch, int maxTrials) {
+		if (batch < 2)
+			throw new IllegalArgumentException("Batches need two replications");
+		this.runner = runner;
+		this.statistic = statistic;
+		this.halfWidth = halfWidth;
+		this.confidence = confidence;
+		this.batch = batch;
+		this.maxTrials = maxTrials;
+	}
+
+	/**
+	 * Run batches of replications until the target precision is reached
+	 *
+	 * @param replication
+	 *            The replication to run
+	 * @param baseSeed
+	 *            The seed of the first replication
+	 * @param stats
+	 *            Receives the statistic of every replication, cleared first
+	 * @param observer
+	 *            Receives the result of every replication, in seed order
+	 * @return The number of replications run
+	 */
+	public int run(ReplicationRunner.Replication replication, long baseSeed,
+			OnlineStats stats, Observer observer) {
+		stats.clear();
+		int trials = 0;
+		while (trials < maxTrials) {
+			int n = Math.min(batch, maxTrials - trials);
+			for (SimulationResult result : runner.run(replication, baseSeed
+					+ trials, n)) {
+				stats.add(statistic.of(result));
+				observer.add(result);
+			}
+			trials += n;
+			if (reached(stats))
+				break;
+		}
+		return trials;
+	}
+
+	/**
+	 * Returns true if the interval is narrow enough. An interval of zero
+	 * width from a handful of identical values is not trusted, so at least
+	 * two batches are needed.
+	 *
+	 * @param stats
+	 *            The statistic of the replications so far
+	 * @return true if the target precision is reached
+	 */
+	private boolean reached(OnlineStats stats) {
+		if (stats.count() < 2 * batch)
+			return false;
+		return stats.halfWidth(confidence) <= halfWidth;
+	}
+}// End of Class
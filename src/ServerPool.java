@@ -0,0 +1,182 @@
+/**
+ * This class keeps the server positions of a branch: which positions are
+ * open, which of them are free, and the completion time of every open
+ * server in heap order. Ids are stable for the whole day; a position that is
+ * closed gives its id back, and the next one opened takes the lowest free
+ * id.
+ *
+ * The pool holds no object per server. The state of the servers is two bits
+ * per id in the words of a FreeServerSet, and the completion times are a
+ * double[] by id inside the heap, so opening, closing, starting and releasing
+ * a server write a few array slots and nothing is allocated during a day.
+ * Idle servers stay on the heap with an infinite completion time, so the
+ * next completion is found in O(1) and every change of a completion time is
+ * O(log n).
+ *
+ * @version 18/10/26
+ */
+public class ServerPool {
+
+	private final FreeServerSet serverFree; // Open and free servers
+	private final IndexMinPQ tncHeap; // Completion times by id, in heap order
+	private int ids; // One more than the highest id ever opened
+
+	/**
+	 * @param capacity
+	 *            The number of positions to size for; more can be opened
+	 */
+	public ServerPool(int capacity) {
+		serverFree = new FreeServerSet(capacity);
+		tncHeap = new IndexMinPQ(capacity);
+	}
+
+	/**
+	 * Open a new free server position, reusing the lowest closed id
+	 *
+	 * @return The id of the new position
+	 */
+	public int open() {
+		int id = serverFree.firstClosed();
+		open(id);
+		return id;
+	}
+
+	/**
+	 * Open a free server position with a given id, as when a snapshot is
+	 * restored
+	 *
+	 * @param id
+	 *            The id of a closed position
+	 */
+	public void open(int id) {
+		serverFree.open(id);
+		tncHeap.insert(id, Double.POSITIVE_INFINITY);
+		if (id >= ids)
+			ids = id + 1;
+	}
+
+	/**
+	 * Close a free server position
+	 *
+	 * @param id
+	 *            The id of the position
+	 */
+	public void close(int id) {
+		serverFree.close(id);
+		tncHeap.delete(id);
+	}
+
+	/**
+	 * Give a free server a customer
+	 *
+	 * @param id
+	 *            The id of the free server
+	 * @param tnc
+	 *            The time the service completes
+	 */
+	public void start(int id, double tnc) {
+		serverFree.setBusy(id);
+		tncHeap.changeKey(id, tnc);
+	}
+
+	/**
+	 * Give a busy server its next customer
+	 *
+	 * @param id
+	 *            The id of the busy server
+	 * @param tnc
+	 *            The time the new service completes
+	 */
+	public void next(int id, double tnc) {
+		tncHeap.changeKey(id, tnc);
+	}
+
+	/**
+	 * Set a busy server free
+	 *
+	 * @param id
+	 *            The id of the busy server
+	 */
+	public void release(int id) {
+		serverFree.setFree(id);
+		tncHeap.changeKey(id, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Find the server with the lowest completion time
+	 *
+	 * @return The id of the server with the lowest time of completion, -1 if
+	 *         all are idle
+	 */
+	public int nextCompletion() {
+		if (nextCompletionTime() == Double.POSITIVE_INFINITY)
+			return -1;
+		return tncHeap.minIndex();
+	}
+
+	/**
+	 *
+	 * @return The lowest time of completion, infinite if all are idle
+	 */
+	public double nextCompletionTime() {
+		return tncHeap.isEmpty() ? Double.POSITIVE_INFINITY : tncHeap.minKey();
+	}
+
+	/**
+	 *
+	 * @return One more than the highest id ever opened
+	 */
+	public int ids() {
+		return ids;
+	}
+
+	/**
+	 * @param id
+	 *            The id of a position
+	 * @return true if the position is open
+	 */
+	public boolean isOpen(int id) {
+		return serverFree.isOpen(id);
+	}
+
+	/**
+	 * @param id
+	 *            The id of an open position
+	 * @return The time the server completes, infinite if it is free
+	 */
+	public double tnc(int id) {
+		return tncHeap.keyOf(id);
+	}
+
+	/**
+	 *
+	 * @return The id of the first free server, -1 if none is free
+	 */
+	public int firstFree() {
+		return serverFree.firstFree();
+	}
+
+	/**
+	 *
+	 * @return The number of open positions
+	 */
+	public int openCount() {
+		return serverFree.openCount();
+	}
+
+	/**
+	 *
+	 * @return The number of free servers
+	 */
+	public int freeCount() {
+		return serverFree.freeCount();
+	}
+
+	/**
+	 *
+	 * @return The number of busy servers
+	 */
+	public int busyCount() {
+		return serverFree.busyCount();
+	}
+}// End of Class
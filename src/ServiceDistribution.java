@@ -0,0 +1,29 @@
+/**
+ * This interface gives the service times of the customers to the simulation
+ * kernel. The random numbers come from the stream of the run, so a
+ * distribution keeps no state and can be shared between replications.
+ *
+ * @version 18/10/26
+ */
+public interface ServiceDistribution {
+
+	/**
+	 * @param r The stream of service times
+	 * @return The service time of the next customer, in hours
+	 */
+	double next(MyRandom r);
+
+	/**
+	 * Erlang-k service times
+	 * @param k The shape of the Erlang distribution
+	 * @param lambda The number of services per hour (=1/E(X))
+	 * @return The service distribution
+	 */
+	static ServiceDistribution erlang(final int k, final double lambda) {
+		return new ServiceDistribution() {
+			public double next(MyRandom r) {
+				return r.nextErlang(k, lambda);
+			}
+		};
+	}
+}// End of Interface
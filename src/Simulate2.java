@@ -1,21 +1,39 @@
+import java.io.IOException;
+
 /**
  * This class implements a simple FIFO (first-in-first-out) queue simulation.
  * There is a fixed number of servers from the start that serves the 
  * customers and doesn't change throughout the day.
  * 
+ * Run as "Simulate2 staff [target [trials]]" it finds the fewest servers
+ * that keep the fraction of customers waiting more than 6 minutes below the
+ * target, 0.05 by default. The search starts where the formulas of ErlangC
+ * point, and the levels they cannot vouch for are simulated, for that many
+ * days.
+ * 
  * @author Christos M Delivorias
  * @version 25/12/10
  */
 
 public class Simulate2 {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		double lambdaA = 58.0;
 		double lambdaS = 20.0;
 		double tEnd = 8.0;
 		int nserv = 3;
 
-		simulateNServers(lambdaA, lambdaS, tEnd, nserv);
+		if (args.length > 0 && args[0].equals("staff")) {
+			double target = (args.length > 1) ? Double.parseDouble(args[1])
+					: 0.05;
+			int trials = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+			chooseServers(lambdaA, lambdaS, tEnd, target, trials);
+			return;
+		}
+
+		// Keep the console trace unless asked for "quiet" or "csv <file>"
+		simulateNServers(lambdaA, lambdaS, tEnd, nserv,
+				TraceSink.fromArgs(args, false));
 
 	}
 
@@ -24,8 +42,10 @@ public class Simulate2 {
 	 * following statistical data.
 	 * 
 	 * Average waiting time   : 
-	 * Server free fraction   : [The percentage of the servers being free]
+	 * Server free fraction   : [The fraction of the open server-hours spent free, 1 - utilization]
 	 * Maximum queue length   : 
+	 * Average queue length   : [The time-average number of customers in the queue]
+	 * Server utilization     : [The fraction of the open server-hours spent serving]
 	 * Total customers arrived: [Total arrivals of customers within the work-day]
 	 * Total customers served : [Total customers served within the work-day]
 	 * Total customers >6min  : [Total number of customers that waited more than 6 minutes to be served, within the work-day]
@@ -42,258 +62,164 @@ public class Simulate2 {
 	 */
 	public static void simulateNServers(double lambdaA, double lambdaS,
 			double tEnd, int nserv) {
-		Queue q = new Queue(); // Initializes up the Queue
-		boolean[] serverFree = new boolean[nserv]; // List of servers of size
-													// nserv
-		MyRandom r = new MyRandom(12342); // Initializes the random number
-		// generator
-		int k = 3; // Initializes the kappa of the Erlang distribution
-
-		double clock = 0; // Start of time
-		double tna = 0.0; // Time to next arrival
-		double[] tnc = new double[nserv]; // Times of size nserv of completion
-											// for every server [i]
-		double endTime = tEnd; // Minutes until endtime
-		int te = 0; // Number of total events
-		int ta = 0; // Number of total arrivals
-		double tne = 0.0; // The time to the next event
-		int qLength = 0; // Max Q length
-
-		double timeFree = 0.0; // Time free at each instance
-		double ttServer = 0.0; // Total server free time
-		double ttServerFree = 0.0;
-		double ttwait = 0.0; // Total waiting time
-		double ttServed = 0.0; // Total Number of Customers
-		double ttWait6 = 0.0; // Number of customers waiting more than 6 minutes
-
-		// Initialize the servers' status
-		for (int i = 0; i < serverFree.length; i++) {
-			serverFree[i] = true;
-		}
-		// Initialize the servers' completion times
-		for (int i = 0; i < tnc.length; i++) {
-			if (i == 0) {
-				tnc[i] = 0.0;
-			}
-			tnc[i] = Double.POSITIVE_INFINITY;
-		}
-
-		// Primary simulation loop
-		while (true) {
-			boolean arrivalEvent = false; // The type of the next event, arrival
-											// or otherwise
-			boolean serviceEvent = false; // The type of the next event, service
-											// or otherwise
-			// Keep track of previous event for server free statistics
-			double prevEvent = 0.0;
-			// Check if the length of the Q is the largest
-			if (q.length() > qLength) {
-				qLength = q.length();
-			}
-
-			// Get the next completion time from all servers
-			int tnc_index;
-			tnc_index = getNextTNC(tnc);
-			// Check if the next event is a feasible arrival time
-			tne = Math.min(tna, tnc[tnc_index]);
-			if (tne == tna && tna != tnc[tnc_index]) {
-				arrivalEvent = true;
-				serviceEvent = false;
-			} else if (tne == tnc[tnc_index] && tna != tnc[tnc_index]) {
-				serviceEvent = true;
-				arrivalEvent = false;
-			} else if (tna == tnc[tnc_index]) {
-				arrivalEvent = true;
-			}
-
-			// Update the clock
-			if (tne != Double.POSITIVE_INFINITY) {
-				prevEvent = clock;
-				clock = tne;
-			}
-
-			// Get the index of the next available server
-			int id = getFreeServer(serverFree);
-
-			// BRANCH_1// Check if the condition to stop the simulation has been
-			// met.
-			if (q.isEmpty() && clock >= endTime
-					&& tnc[tnc_index] == Double.POSITIVE_INFINITY) {
-				System.out.println("Average waiting time: " + ttwait
-						/ ttServed);
-				System.out.println("Server free fraction: " + ttServer
-						/ (clock*nserv));
-				System.out.println("Maximum queue length: " + qLength);
-				System.out.println("Total customers arrived: " + ta);
-				System.out
-						.println("Total customers served : " + (int) ttServed);
-				System.out.println("Total customers >6min  : " + (int) ttWait6);
-				System.out.println(" fraction              : "
-						+ (ttWait6 / ttServed));
-				System.exit(0);
-			}
-
-			// BRANCH_2// This is an arrival event and the end time is not
-			// reached
-			if (arrivalEvent && clock < endTime) {
-				if (id != -1)
-					timeFree = clock - prevEvent;
-				ttServerFree += timeFree;
-				ttServer += timeFree * freeServersNo(serverFree);
-				// Report how many servers are free and for how long
-				if (freeServersNo(serverFree) != 0)
-					System.out.println(freeServersNo(serverFree)
-							+ " server(s) are free for " + timeFree
-							+ " hours. Total= " + ttServer);
-
-				// Sample for next arrival time so long that it doens't exceed
-				// endTime
-				tna = clock + r.nextExponential(lambdaA);
-				if (tna > tEnd) {
-					tna = Double.POSITIVE_INFINITY;
-				}
-
-				ta++;
-				// BRANCH_3_YES// Inner conditional loop to check if there is at
-				// least
-				// one server free
-				if (id != -1) {
-					// Mark the server as busy
-					serverFree[id] = false;
-					// Sample for time of next completion
-					tnc[id] = clock + r.nextErlang(k, lambdaS);
-
-				} else {// BRANCH_3_NO//
-						// Put person in the queue
-					q.put(clock);
-				}
-				// Print out the arrival event
-				System.out.println(te + "  " + "arrival" + "  " + q.length()
-						+ " " + clock);
-				if (q.isEmpty()) {
-					// System.out.println("Guy is served, has waited: 0.0");
-					ttServed++;
-				}
-			} else {
-				// BRANCH_4_YES// This is a service completion event
-				if (serviceEvent) {
-					if (id != -1)
-						timeFree = clock - prevEvent;
-					ttServerFree += timeFree;
-					ttServer += timeFree * freeServersNo(serverFree);
-					// Report how many servers are free and for how long
-					if (freeServersNo(serverFree) != 0)
-						System.out.println(freeServersNo(serverFree)
-								+ " server(s) are free for " + timeFree
-								+ " hours. Total= " + ttServer);
-					// Update the server time with the sum of all the servers.
-					// BRANCH_5_YES// Inner conditional loop to check if the
-					// queue is
-					// empty
-					if (q.isEmpty()) {
-						// Get the first busy server and release them
-						int busy = getNextTNC(tnc);
-						if (busy != -1)
-							serverFree[busy] = true;
-
-						if (busy != -1)
-							tnc[busy] = Double.POSITIVE_INFINITY;
-
-					}// End of yes in Condition 5
-					else {// BRANCH_5_NO//
-							// Get person from queue
-						double t = q.get();
-
-						// Log the served customer
-						ttServed++;
-						// Check which customers waited more than 6 minutes (0.1
-						// of the hour)
-						if ((clock - t) > 0.1) {
-							// If it took more than 6 minutes to serve, log it.
-							ttWait6++;
-						}
-						System.out.println("Guy is served, has waited: "
-								+ (clock - t));
-						// Update the sum of waiting times
-						ttwait += (clock - t);
-
-						// Sample for time of next completion
-						tnc[tnc_index] = clock + r.nextErlang(k, lambdaS);
-
-					}// End of no in Condition 5
-						// Write out the Completion of the event
-					int event = tnc_index + 1;
-					System.out.println(te + "  " + "compl_" + event + "  "
-							+ q.length() + " " + clock);
+		simulateNServers(lambdaA, lambdaS, tEnd, nserv,
+				new PrintTraceSink(System.out, false));
+	}
 
-				}// End of Condition 4
-				else {// BRANCH_4_NO//
-						// Set next arrival time to very large number
-					tna = Double.POSITIVE_INFINITY;
-				}// End of Infinite arrival time
-			}// End of no in Condition 2
-				// Increment the number of events
-			te++;
-		}// End of while loop
-	}// End of static main method
+	/**
+	 * Static method to run a simulation with certain parameters, sending the
+	 * event trace to a sink. It outputs the same statistical data as above.
+	 * 
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param trace
+	 *            The sink that receives the event trace
+	 */
+	public static void simulateNServers(double lambdaA, double lambdaS,
+			double tEnd, int nserv, TraceSink trace) {
+		SimulationResult result = simulateNServers(lambdaA, lambdaS, tEnd,
+				nserv, 12342, trace);
+		trace.close();
+		printSummary(result);
+	}
 
 	/**
-	 * Find the first server that is free.
-	 * @param serverFree The array in which to look for a free server
-	 * @return	The index of the position of the first free server
+	 * Static method to run a simulation with certain parameters and return
+	 * its statistics without printing them.
+	 * 
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param seed
+	 *            The seed of the random number generator
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return The statistics of the work-day
 	 */
-	private static int getFreeServer(boolean[] serverFree) {
-		for (int i = 0; i < serverFree.length; i++) {
-			if (serverFree[i] == true) {
-				return i;
-			}
-		}
-		return -1;
-	}// End of getFreeServer method
+	public static SimulationResult simulateNServers(double lambdaA,
+			double lambdaS, double tEnd, int nserv, long seed, TraceSink trace) {
+		MyRandom r = new MyRandom(seed); // Initializes the random number
+		// generator
+		int k = 3; // Initializes the kappa of the Erlang distribution
+
+		// The same servers all day; no arrivals after the end of the day
+		SimulationKernel kernel = new SimulationKernel(
+				ArrivalProcess.poisson(lambdaA, tEnd),
+				ServiceDistribution.erlang(k, lambdaS),
+				StaffingPolicy.FIXED, nserv, tEnd);
+		return kernel.run(r, r, seed, trace);
+	}// End of static main method
 
 	/**
-	 * Find the first server that is busy.
-	 * @param serverFree The array in which to look for a busy server
-	 * @return The index of the position of the first busy server
+	 * Find the fewest servers that keep the fraction of customers waiting
+	 * more than 6 minutes below a target. The formulas of ErlangC seed the
+	 * search at the first level they do not call infeasible; from there the
+	 * levels are tried up until one meets the target and then down while the
+	 * one below meets it too. The steady state is the worst of a stable day,
+	 * so a level the formulas call feasible is taken as it is; every other
+	 * level is simulated, since a day that starts empty may meet the target
+	 * where the steady state does not.
+	 * 
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param target
+	 *            The largest fraction of customers waiting more than 6 minutes
+	 * @param trials
+	 *            The number of days to simulate a level for
+	 * @return The number of servers
 	 */
-	private static int getBusyServer(boolean[] serverFree) {
-		for (int i = 0; i < serverFree.length; i++) {
-			if (serverFree[i] == false) {
-				return i;
-			}
-		}
-		return -1;
-	}// End of getFreeServer method
+	public static int chooseServers(final double lambdaA,
+			final double lambdaS, final double tEnd, double target, int trials) {
+		int k = 3; // Initializes the kappa of the Erlang distribution
+		int start = 1;
+		while (ErlangC.screen(start, lambdaA, lambdaS, k, 0.1, target)
+				== ErlangC.Verdict.INFEASIBLE)
+			start++;
+		ReplicationRunner runner = new ReplicationRunner();
+		int[] simulated = new int[1];
+		int nserv = start;
+		while (!meetsTarget(runner, lambdaA, lambdaS, tEnd, nserv, k, target,
+				trials, simulated))
+			nserv++;
+		// Below a level reached going up is one that failed already
+		boolean down = nserv == start;
+		while (down && nserv > 1
+				&& meetsTarget(runner, lambdaA, lambdaS, tEnd, nserv - 1, k,
+						target, trials, simulated))
+			nserv--;
+		runner.shutdown();
+		System.out.println("Servers needed: " + nserv + " (search from "
+				+ start + ", " + simulated[0] + " levels simulated)");
+		return nserv;
+	}// End of chooseServers method
 
 	/**
-	 * Count the free servers
-	 * @param serverFree The array in which to look for a free server
-	 * @return The number of servers that are free
+	 * Tell whether a number of servers keeps the fraction of customers
+	 * waiting more than 6 minutes below a target, from the formulas if they
+	 * call it feasible and by simulating the days otherwise
+	 * 
+	 * @param simulated
+	 *            The count of the levels simulated, increased if this one is
+	 * @return true if the level meets the target
 	 */
-	private static int freeServersNo(boolean[] serverFree) {
-		int servers = 0;
-		for (int i = 0; i < serverFree.length; i++) {
-			if (serverFree[i] == true) {
-				servers++;
-			}
+	private static boolean meetsTarget(ReplicationRunner runner,
+			final double lambdaA, final double lambdaS, final double tEnd,
+			final int nserv, int k, double target, int trials, int[] simulated) {
+		ErlangC.Verdict verdict = ErlangC.screen(nserv, lambdaA, lambdaS, k,
+				0.1, target);
+		String line = String.format("%3d servers: rho %.3f, steady-state"
+				+ " fraction %.4f, %s", nserv, lambdaA / (nserv * lambdaS),
+				ErlangC.waitTail(nserv, lambdaA, lambdaS, k, 0.1), verdict
+						.toString().toLowerCase());
+		if (verdict == ErlangC.Verdict.FEASIBLE) {
+			System.out.println(line);
+			return true;
 		}
-		return servers;
-	}// End of freeServersNo method
+		OnlineStats fraction = SimulationResult.fractionStats(runner.run(
+				s -> simulateNServers(lambdaA, lambdaS, tEnd, nserv, s,
+						NullTraceSink.INSTANCE), 12342, trials));
+		simulated[0]++;
+		System.out.println(line + ", simulated " + fraction.mean() + " +- "
+				+ fraction.halfWidth(0.95));
+		return fraction.mean() <= target;
+	}// End of meetsTarget method
 
 	/**
-	 * Find the next completion time
-	 * @param tnc_min The completion times array to search in
-	 * @return The index of the lowest time of completion
+	 * Print the statistics of a work-day
+	 * @param result The statistics to print
 	 */
-	private static int getNextTNC(double[] tnc) {
-		double tnc_min = Double.POSITIVE_INFINITY;
-		int index = 0;
-		for (int i = 0; i < tnc.length; i++) {
-			if (tnc[i] < tnc_min) {
-				index = i;
-				tnc_min = tnc[i];
-			}
-		}
-		return index;
-	}// End of getNextTNC method
+	private static void printSummary(SimulationResult result) {
+		System.out.println("Average waiting time: " + result.getAverageWait());
+		System.out.println("Server free fraction: "
+				+ result.getServerFreeFraction());
+		System.out.println("Maximum queue length: "
+				+ result.getMaxQueueLength());
+		System.out.println("Average queue length: "
+				+ result.getAverageQueueLength());
+		System.out.println("Server utilization  : " + result.getUtilization());
+		System.out.println("Total customers arrived: " + result.getArrivals());
+		System.out.println("Total customers served : " + result.getServed());
+		System.out.println("Total customers >6min  : " + result.getWait6());
+		System.out.println(" fraction              : " + result.getFraction());
+		System.out.println(" wait 95% CI           : "
+				+ result.getWaitMeans().toString(0.95));
+		System.out.println(" fraction 95% CI       : "
+				+ result.getWait6Means().toString(0.95));
+		result.getWaitHistogram().print();
+	}// End of printSummary method
 }// End of Class
@@ -1,5 +1,6 @@
-import java.util.ArrayList;
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 
 /**
  * This class implements a simple FIFO (first-in-first-out) queue simulation.
@@ -10,15 +11,18 @@ import java.text.DecimalFormat;
 
 public class Simulate3 {
 
-	private static boolean openPosition;
-	private static double fractionAvg = 0.0;
-	private static DecimalFormat percent;
-
+	/**
+	 * The average of arriving customers for every hour of service. The
+	 * distributions were provided by the manager. They can be changed to any
+	 * measured distribution, or read from a file with RateTable.load.
+	 */
+	static final RateTable RATES = new RateTable(1.0, new double[] { 58.0,
+			50.0, 70.0, 80.0, 40.0, 60.0, 50.0, 70.0 });
 
-	public static void main(String[] args) {
-		double lambdaA = 58.0;
-		double lambdaS = 30.0;
-		double tEnd = 8.0;
+	public static void main(String[] args) throws IOException {
+		final double lambdaA = 58.0;
+		final double lambdaS = 30.0;
+		final double tEnd = 8.0;
 		/**
 		 * By starting and finishing shift with 1 server, almost 98.484848% of
 		 * customers wait more than 6 mins with the avg wait time at 218 hours.
@@ -30,7 +34,7 @@ public class Simulate3 {
 		 * alone starts, the fraction in close to 16%. By starting with 2 servers
 		 * the fraction is 4.3%.
 		 */
-		int nserv = 2;
+		final int nserv = 2;
 		
 		// The starting seed for the random number generator
 		long seed = 12342;
@@ -38,31 +42,109 @@ public class Simulate3 {
 		//The number of times the simulation will be repeated for the average statistics
 		int trials =100;
 		
-		// Conduct a number of trials in order to get the average fraction of customers
-		// waiting more than 6 mins. Use different seed in each trial.
-		for (int i = 1; i <= trials; i++) {
-			simulateNServers(lambdaA, lambdaS, tEnd, nserv, seed);
-			seed++;
+		// "rates <file>" first replaces the hourly rates of the manager
+		RateTable rates = RATES;
+		if (args.length >= 2 && args[0].equals("rates")) {
+			rates = RateTable.load(args[1]);
+			args = Arrays.copyOfRange(args, 2, args.length);
 		}
-		double trialAvg = fractionAvg/trials;
-		percent = new DecimalFormat("0.#%");	
+		final RateTable dayRates = rates;
+		
+		// Sequential mode: "fraction <half-width>" or "wait <half-width in
+		// minutes>"
+		if (args.length > 0
+				&& (args.length != 2 || !(args[0].equals("fraction") || args[0]
+						.equals("wait"))))
+			throw new IllegalArgumentException(
+					"Usage: Simulate3 [rates file] [fraction half-width | wait half-width-minutes]");
+		
+		ReplicationRunner.Replication day = s -> {
+			// One stream for both arrivals and services, as always
+			MyRandom r = new MyRandom(s);
+			return simulateNServers(dayRates, lambdaS, tEnd, nserv, 6,
+					Integer.MAX_VALUE, r, r, s, NullTraceSink.INSTANCE);
+		};
+		SimulationMetrics.register();
+		ReplicationRunner runner = new ReplicationRunner();
+		Trials all = new Trials();
+		
+		if (args.length == 2) {
+			// Sequential mode: run batches of trials until the 95% confidence
+			// interval is that narrow.
+			boolean onWait = args[0].equals("wait");
+			double target = Double.parseDouble(args[1]);
+			SequentialRunner sequential = new SequentialRunner(runner,
+					onWait ? SequentialRunner.AVERAGE_WAIT
+							: SequentialRunner.FRACTION,
+					onWait ? target / 60 : target, 0.95, 20, 100000);
+			trials = sequential.run(day, seed, new OnlineStats(), all);
+			System.out.println("Trials needed for a 95% half-width of " + target
+					+ (onWait ? " minutes on the average wait" : " on the fraction")
+					+ " : " + trials);
+		} else {
+			// Conduct a number of trials in order to get the average fraction of customers
+			// waiting more than 6 mins. Use different seed in each trial. The trials
+			// run in parallel without the event trace and are reported in seed order.
+			for (SimulationResult result : runner.run(day, seed, trials)) {
+				result.print();
+				all.add(result);
+			}
+		}
+		runner.shutdown();
+		double trialAvg = all.fractionSum / all.count;
+		DecimalFormat percent = new DecimalFormat("0.#%");	
 		System.out.println("=============================================================================");
 		System.out.println();
-		System.out.println("Average percent of customers waiting more than 6 minutes (100 trials) : "+percent.format(trialAvg));
+		System.out.println("Average percent of customers waiting more than 6 minutes (" + trials + " trials) : "+percent.format(trialAvg));
+		// Confidence intervals over the trials
+		System.out.println("95% CI on the percent waiting more than 6 minutes : "
+				+ percent.format(all.fractions.mean()) + " +- "
+				+ new DecimalFormat("0.##%").format(all.fractions.halfWidth(0.95)));
+		System.out.println("95% CI on the average waiting time (minutes)      : "
+				+ 60 * all.waits.mean() + " +- " + 60 * all.waits.halfWidth(0.95));
+		// Tail waits per hour over all the trials
+		System.out.println();
+		all.hours.print();
 
 	}
 
+	/**
+	 * The statistics over the trials, taken in seed order as the trials
+	 * finish, so the results themselves need not be kept
+	 */
+	private static class Trials implements SequentialRunner.Observer {
+		int count;
+		double fractionSum; // Summed in seed order, as averageFraction does
+		final OnlineStats fractions = new OnlineStats();
+		final OnlineStats waits = new OnlineStats();
+		HourlyWaitHistogram hours; // The waits per hour of all the trials
+
+		public void add(SimulationResult result) {
+			count++;
+			fractionSum += result.getFraction();
+			fractions.add(result.getFraction());
+			waits.add(result.getAverageWait());
+			if (hours == null)
+				hours = new HourlyWaitHistogram(result.getWaitHistogram()
+						.hours());
+			hours.merge(result.getWaitHistogram());
+		}
+	}
+
 	/**
 	 * Static method to run a simulation with certain parameters. It outputs the
 	 * following statistical data.
 	 * 
 	 * Average waiting time   : 
-	 * Server free fraction   : [The percentage of the servers being free]
+	 * Server free fraction   : [The fraction of the open server-hours spent free, 1 - utilization]
 	 * Maximum queue length   : 
 	 * Total customers arrived: [Total arrivals of customers within the work-day]
 	 * Total customers served : [Total customers served within the work-day]
 	 * Total customers >6min  : [Total number of customers that waited more than 6 minutes to be served, within the work-day]
 	 * fraction               : [Percentage of customers that waited more than 6 minutes in the queue]
+	 * server avg             : [The average number of busy servers per event]
+	 * avg queue length       : [The time-average number of customers in the queue]
+	 * server-hours           : [The open server-hours of the day, the cost of the staffing]
 	 * 
 	 * @param lambdaA
 	 *            Mean of exponential inter-arrival distribution.
@@ -76,372 +158,112 @@ public class Simulate3 {
 	 */
 	public static void simulateNServers(double lambdaA, double lambdaS,
 			double tEnd, int nserv, long seed) {
-		Queue q = new Queue(); // Initializes up the Queue
-		ArrayList<Server> serverFree = new ArrayList<Server>(); // Create list of servers
-		MyRandom r = new MyRandom(seed); // Initializes the random number
-		// generator
-		int k = 3; // Initializes the kappa of the Erlang distribution
-
-		double clock = 0; // Start of time
-		double tna = 0.0; // Time to next arrival
-		//double[] tnc = new double[nserv]; // Times of size nserv of completion
-											// for every server [i]
-		double endTime = tEnd; // Minutes until endtime
-		int te = 0; // Number of total events
-		int ta = 0; // Number of total arrivals
-		double tne = 0.0; // The time to the next event
-		int qLength = 0; // Max Q length
-
-		double timeFree = 0.0; // Time free at each instance
-		double ttServer = 0.0; // Total server free time
-		double ttServerFree = 0.0;
-		double ttwait = 0.0; // Total waiting time
-		double ttServed = 0.0; // Total Number of Customers
-		double ttWait6 = 0.0; // Number of customers waiting more than 6 minutes
-		int busySrv = 0;	// The total number of servers busy for all events	
-		int prevHour = 0;		// Keeping track of which hour has finished
-		int hourStartEvent = 0;
-		int serverSum = 0;
-		double serverHourlyAvg = 0.0;
-		
-		// Initialize the servers' status
-		for (int i = 0; i < nserv; i++) {
-			serverFree.add(new Server(true));
-		}
-		
-		// Initialise the first completion time to 0.0
-		Server tmpSrv = serverFree.get(0);
-		tmpSrv.setTnc(0.0);
-		serverFree.set(0, tmpSrv);
-		
-		// Primary simulation loop
-		while (true) {
-			
-			boolean arrivalEvent = false; // The type of the next event, arrival
-											// or otherwise
-			boolean serviceEvent = false; // The type of the next event, service
-											// or otherwise
-			// Keep track of previous event for server free statistics
-			double prevEvent = 0.0;
-			// Check if the length of the Q is the largest
-			if (q.length() > qLength) {
-				qLength = q.length();
-			}
-			//Keep track of the fraction of customers waiting more than 6mins
-			//This should not exceed 5% on average
-			double fraction = ttWait6 / ttServed;
-			
-			// Print out the fraction per event
-			System.out.println("fraction: "
-					+ fraction);
-			// Prints out the number of servers
-			int servers=serverFree.size();
-			System.out.println("servers: "
-					+ servers);
-
-			// Keep track of how many servers are busy
-			busySrv += busyServersNo(serverFree);
-
-			// Get the next completion time from all servers
-			double tnc;
-			Server tmp = getNextTNC(serverFree); 
-			if(tmp!=null) tnc = tmp.getTnc();
-			else tnc=Double.POSITIVE_INFINITY;
-			int tnc_index = serverFree.indexOf(tmp);
-			
-			// Check if the next event is a feasible arrival time
-			tne = Math.min(tna, tnc);
-			if (tne == tna && tna != tnc) {
-				arrivalEvent = true;
-				serviceEvent = false;
-			} else if (tne == tnc && tna != tnc) {
-				serviceEvent = true;
-				arrivalEvent = false;
-			} else if (tna == tnc) {
-				arrivalEvent = true;
-			}
-
-			// Update the clock
-			if (tne != Double.POSITIVE_INFINITY) {
-				prevEvent = clock;
-				clock = tne;
-			}
-
-			/**
-			 * In this block I'll be keeping some statistics for the average
-			 * allocation of servers per hour
-			 */
-			int currHour=(int) clock;
-			if(currHour==prevHour){
-				serverSum+=servers;
-				
-			}else if (currHour>=prevHour){
-				serverHourlyAvg= (double) serverSum/(te-hourStartEvent);
-				System.out.println("Avg servers for hour "+currHour+" : "+serverHourlyAvg);
-				serverSum = 0;
-				hourStartEvent=te;
-				prevHour=currHour;
-			}
-			
-			/**
-			 * Every time the cycle begins there needs to be a check whether the
-			 * optimality constraint is met. This constraint is that the queue
-			 * is no larger than 6 customers. If it is not, then the algorithm
-			 * needs to set up a flag that will increase the number of servers
-			 * until the constraint is satisfied.
-			 */
-			if (q.length()>6) {
-				openPosition=true;
-			}else openPosition=false;
-
-			// Get the index of the next available server
-			int id = getFreeServer(serverFree);
-			// BRANCH_1// Check if the condition to stop the simulation has been met.
-			if (q.isEmpty() && clock >= endTime
-					&& tnc == Double.POSITIVE_INFINITY) {
-				percent = new DecimalFormat("0.0#%");
-				System.out.println("Average waiting time: " + 60*ttwait
-						/ ttServed+" minutes");
-				System.out.println("Server free fraction: " + percent.format(ttServer/ ttServerFree));
-				System.out.println("Maximum queue length: " + qLength);
-				System.out.println("Total customers arrived: " + ta);
-				System.out
-						.println("Total customers served : " + (int) ttServed);
-				System.out.println("Total customers >6min  : " + (int) ttWait6);
-				System.out.println(" fraction              : "
-						+ fraction);
-				fractionAvg+=fraction;
-				System.out.println(" server avg            : "
-						+ ((double) busySrv/te));
-				break;
-			}
-
-			// BRANCH_2// This is an arrival event and the end time is not reached
-			if (arrivalEvent && clock < endTime) {
-				if (id != -1)
-					timeFree = clock - prevEvent;
-				ttServerFree += timeFree;
-				ttServer += timeFree * freeServersNo(serverFree);
-				// Report how many servers are free and for how long
-				if (freeServersNo(serverFree) != 0)
-					System.out.println(freeServersNo(serverFree)
-							+ " server(s) are free for " + timeFree
-							+ " hours. Total= " + ttServer);
-
-				// Sample for next arrival time so long that it doens't exceed endTime
-				tna = clock + r.nextExponential(getLambda(clock));
-				if (tna > tEnd) {
-					tna = Double.POSITIVE_INFINITY;
-				}
-
-				ta++;
-				// BRANCH_3_YES// Inner conditional loop to check if there is at
-				// least one server free
-				if (id != -1) {
-					// Mark the server as busy by replacing the object in the arraylist
-					Server tmpSrv0 = serverFree.get(id);
-					tmpSrv0.setState(false);
-					
-					// Sample for time of next completion
-					tmpSrv0.setTnc(clock + r.nextErlang(k, lambdaS));
-					serverFree.set(id, tmpSrv0);
-					
-				} else {// BRANCH_3_NO//
-					// Put person in the queue
-					q.put(clock);
-					// If there is need for servers add one here
-					if (openPosition) serverFree.add(new Server(true));
-				}
-				// Print out the arrival event
-				System.out.println(te + "  " + "arrival" + "  " + q.length()
-						+ " " + clock);
-				if (q.isEmpty()) {
-					// System.out.println("Guy is served, has waited: 0.0");
-					ttServed++;
-				}
-			} else {
-				// BRANCH_4_YES// This is a service completion event
-				if (serviceEvent) {
-					if (id != -1)
-						timeFree = clock - prevEvent;
-					ttServerFree += timeFree;
-					ttServer += timeFree * freeServersNo(serverFree);
-					// Report how many servers are free and for how long
-					if (freeServersNo(serverFree) != 0)
-						System.out.println(freeServersNo(serverFree)
-								+ " server(s) are free for " + timeFree
-								+ " hours. Total= " + ttServer);
-					// BRANCH_5_YES// Inner conditional loop to check if the
-					// queue is empty
-					if (q.isEmpty()) {
-						
-						// If there is no more need; release the additional server
-						if (!openPosition && serverFree.size()>nserv && id!=-1) serverFree.remove(id);
-						
-						// Get the first busy server and release them
-						int busy = serverFree.indexOf(getNextTNC(serverFree));
-						if (busy != -1){
-							// Mark the server as busy by replacing the object in the arraylist
-							Server tmpSrv1 = serverFree.get(busy);
-							tmpSrv1.setState(true);
-							serverFree.set(busy, tmpSrv1);
-						}
-						
-						if (busy != -1){
-							Server tmpSrv2 = serverFree.get(busy);
-							tmpSrv2.setTnc(Double.POSITIVE_INFINITY);
-							serverFree.set(busy, tmpSrv2);
-						}
-							
-
-					}// End of yes in Condition 5
-					else {// BRANCH_5_NO//
-							// Get person from queue
-						double t = q.get();
-
-						// Log the served customer
-						ttServed++;
-						// Check which customers waited more than 6 minutes (0.1
-						// of the hour)
-						if ((clock - t) > 0.1) {
-							// If it took more than 6 minutes to serve, log it.
-							ttWait6++;
-						}
-						System.out.println("Guy is served, has waited: "
-								+ (clock - t));
-						// Update the sum of waiting times
-						ttwait += (clock - t);
-
-						// Sample for time of next completion
-						Server tmpSrv3 = serverFree.get(tnc_index);
-						tmpSrv3.setTnc(clock + r.nextErlang(k, lambdaS));
-						serverFree.set(tnc_index, tmpSrv3);
-
-					}// End of no in Condition 5
-						// Write out the Completion of the event
-					int event = tnc_index + 1;
-					System.out.println(te + "  " + "compl_" + event + "  "
-							+ q.length() + " " + clock);
-
-				}// End of Condition 4
-				else {// BRANCH_4_NO//
-						// Set next arrival time to very large number
-					tna = Double.POSITIVE_INFINITY;
-				}// End of Infinite arrival time
-			}// End of no in Condition 2
-				// Increment the number of events
-			te++;
-		}// End of while loop
-	}// End of static main method
-
-	
+		simulateNServers(lambdaA, lambdaS, tEnd, nserv, seed,
+				new PrintTraceSink(System.out, false)).print();
+	}
 
 	/**
-	 * Method to get the appropriate average of arriving customers per hour of
-	 * service. The distributions were provided by the manager. They can be 
-	 * changed to any measured distribution.
+	 * Static method to run a simulation with certain parameters and return
+	 * its statistics. It keeps no state outside the call, so replications can
+	 * run on several threads at once.
 	 * 
-	 * @param Clock
-	 *            The current time
-	 * @return The average customers arriving for this hour
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param seed
+	 *            The seed of the random number generator
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return The statistics of the work-day
 	 */
-	private static double getLambda(double clock) {
-		switch ((int) clock) {
-		case 0:
-			return 58.0;
-		case 1:
-			return 50.0;
-		case 2:
-			return 70.0;
-		case 3:
-			return 80.0;
-		case 4:
-			return 40.0;
-		case 5:
-			return 60.0;
-		case 6:
-			return 50.0;
-		case 7:
-			return 70.0;
-		default:
-			return 0;
-		}
-
+	public static SimulationResult simulateNServers(double lambdaA,
+			double lambdaS, double tEnd, int nserv, long seed, TraceSink trace) {
+		// One stream for both arrivals and services, as always
+		MyRandom r = new MyRandom(seed);
+		return simulateNServers(lambdaA, lambdaS, tEnd, nserv, 6,
+				Integer.MAX_VALUE, r, r, seed, trace);
 	}
 
-
 	/**
-	 * Find the first server that is free.
-	 * @param serverFree The arraylist in which to look for a free server
-	 * @return	The index of the position of the first free server
+	 * Static method to run a simulation with separate random number streams
+	 * for the arrivals and for the service times. Two configurations run on
+	 * the same pair of streams see the same customers with the same service
+	 * needs (common random numbers), so their difference has a far smaller
+	 * variance than with one shared stream.
+	 * 
+	 * @param lambdaA
+	 *            Not used: the arrivals follow the hourly rates of the manager
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param threshold
+	 *            The queue length above which a new position is opened
+	 * @param maxServers
+	 *            The largest number of open positions
+	 * @param arrivals
+	 *            The stream of inter-arrival times
+	 * @param services
+	 *            The stream of service times, may be the arrivals stream
+	 * @param seed
+	 *            The seed the streams were made from, for the result
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return The statistics of the work-day
 	 */
-	private static int getFreeServer(ArrayList<Server> serverFree) {
-		for (Server server : serverFree) {
-			boolean state = server.isState();
-			if (state){
-				return serverFree.indexOf(server);
-			}
-		}return -1;
-	}// End of getFreeServer method
+	public static SimulationResult simulateNServers(double lambdaA,
+			double lambdaS, double tEnd, int nserv, int threshold,
+			int maxServers, MyRandom arrivals, MyRandom services, long seed,
+			TraceSink trace) {
+		return simulateNServers(RATES, lambdaS, tEnd, nserv, threshold,
+				maxServers, arrivals, services, seed, trace);
+	}
 
 	/**
-	 * Find the first server that is busy.
-	 * @param serverFree The arraylist in which to look for a busy server
-	 * @return The index of the position of the first busy server
+	 * Static method to run a simulation with separate random number streams
+	 * and the arrival rates of a table.
+	 * 
+	 * @param rates
+	 *            The arrival rate over the day
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param threshold
+	 *            The queue length above which a new position is opened
+	 * @param maxServers
+	 *            The largest number of open positions
+	 * @param arrivals
+	 *            The stream of inter-arrival times
+	 * @param services
+	 *            The stream of service times, may be the arrivals stream
+	 * @param seed
+	 *            The seed the streams were made from, for the result
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return The statistics of the work-day
 	 */
-	private static int getBusyServer(ArrayList<Server> serverFree) {
-		for (Server server : serverFree) {
-			boolean state = server.isState();
-			if (state){
-				return serverFree.indexOf(server);
-			}
-		}return -1;
-	}// End of getFreeServer method
+	public static SimulationResult simulateNServers(RateTable rates,
+			double lambdaS, double tEnd, int nserv, int threshold,
+			int maxServers, MyRandom arrivals, MyRandom services, long seed,
+			TraceSink trace) {
+		int k = 3; // Initializes the kappa of the Erlang distribution
 
-	/**
-	 * Count the free servers
-	 * @param serverFree The arraylist in which to look for a free server
-	 * @return The number of servers that are free
-	 */
-	private static int freeServersNo(ArrayList<Server> serverFree) {
-		int servers = 0;
-		for (Server server : serverFree) {
-			boolean state = server.isState();
-			if (state) servers++;
-		}
-		return servers;
-	}// End of freeServersNo method
-	
-	/**
-	 * Count the busy servers
-	 * @param serverFree The arraylist in which to look for a busy server
-	 * @return The number of servers that are busy
-	 */
-	private static int busyServersNo(ArrayList<Server> serverFree) {
-		int servers = 0;
-		for (Server server : serverFree) {
-			boolean state = server.isState();
-			if (!state) servers++;
-		}
-		return servers;
-	}// End of busyServersNo method
-	
-	
-	/**
-	 * Find the server with the lowest completion time
-	 * @param tnc_min The arraylist to search for completion times 
-	 * @return The index of the lowest time of completion
-	 */
-	private static Server getNextTNC(ArrayList<Server> serverFree) {
-		double tnc_min = Double.POSITIVE_INFINITY;
-		Server index = null;
-		for (Server server : serverFree) {
-			if(server.getTnc() < tnc_min) {
-				tnc_min = server.getTnc();
-				index=server;
-			}
-			
-		}
-		return index;
-	}// End of getNextTNC method
+		// Open a position while the queue is longer than the threshold
+		SimulationKernel kernel = new SimulationKernel(
+				ArrivalProcess.nonHomogeneous(rates, tEnd),
+				ServiceDistribution.erlang(k, lambdaS),
+				StaffingPolicy.threshold(nserv, threshold, maxServers), nserv,
+				tEnd);
+		return kernel.run(arrivals, services, seed, trace);
+	}// End of static main method
 }// End of Class
@@ -0,0 +1,415 @@
+/**
+ * This class is the event loop shared by all the simulators: a FIFO queue in
+ * front of a pool of servers over a work-day. Arrivals stop at the end of the
+ * day and the day ends once the queue is empty and every server is idle.
+ *
+ * What differs between the scenarios plugs into the loop: the arrival
+ * process, the service time distribution, the staffing policy and, for a
+ * branch of a network, the transfers of customers to and from the
+ * neighbouring branches. Each
+ * scenario runs one kind of each, so the calls in the loop stay monomorphic
+ * and are inlined by the JIT.
+ *
+ * The state of a run is a SimulationState, which also holds the random
+ * number streams. advance() loads it into locals, runs the events up to a
+ * time and stores it back, so a run can be stopped in the middle of the day,
+ * saved, and carried on from there under this or any other kernel.
+ *
+ * The counts of a run are added to the SimulationMetrics every
+ * SimulationMetrics.PUBLISH_EVENTS events and when advance() returns.
+ *
+ * @version 18/10/26
+ */
+public class SimulationKernel {
+
+	private final ArrivalProcess arrivalProcess;
+	private final ServiceDistribution serviceTimes;
+	private final StaffingPolicy staffing;
+	private final Transfers transfers;
+	private final int nserv;
+	private final double tEnd;
+	// Report the staffing on every event; pointless when it is fixed
+	private final boolean traceStaffing;
+	private final int batches; // Least number of batches of the batch means
+	private final long batchSize; // Values per batch at the start
+
+	/**
+	 * @param arrivals
+	 *            The arrival process
+	 * @param services
+	 *            The service time distribution
+	 * @param staffing
+	 *            The staffing policy
+	 * @param nserv
+	 *            The number of servers at the start of the day
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 */
+	public SimulationKernel(ArrivalProcess arrivals,
+			ServiceDistribution services, StaffingPolicy staffing, int nserv,
+			double tEnd) {
+		this(arrivals, services, staffing, Transfers.NONE, nserv, tEnd);
+	}
+
+	/**
+	 * Constructor for a branch of a network
+	 *
+	 * @param arrivals
+	 *            The arrival process
+	 * @param services
+	 *            The service time distribution
+	 * @param staffing
+	 *            The staffing policy
+	 * @param transfers
+	 *            The customers exchanged with the other branches
+	 * @param nserv
+	 *            The number of servers at the start of the day
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 */
+	public SimulationKernel(ArrivalProcess arrivals,
+			ServiceDistribution services, StaffingPolicy staffing,
+			Transfers transfers, int nserv, double tEnd) {
+		this(arrivals, services, staffing, transfers, nserv, tEnd,
+				BatchMeans.DEFAULT_BATCHES, 1);
+	}
+
+	/**
+	 * Constructor for long runs, whose batch means are also used to find the
+	 * warm-up to discard
+	 *
+	 * @param arrivals
+	 *            The arrival process
+	 * @param services
+	 *            The service time distribution
+	 * @param staffing
+	 *            The staffing policy
+	 * @param nserv
+	 *            The number of servers at the start of the day
+	 * @param tEnd
+	 *            The time until the end of the run
+	 * @param batches
+	 *            The least number of batches of the waits
+	 * @param batchSize
+	 *            The number of waits per batch at the start
+	 */
+	public SimulationKernel(ArrivalProcess arrivals,
+			ServiceDistribution services, StaffingPolicy staffing, int nserv,
+			double tEnd, int batches, long batchSize) {
+		this(arrivals, services, staffing, Transfers.NONE, nserv, tEnd,
+				batches, batchSize);
+	}
+
+	private SimulationKernel(ArrivalProcess arrivals,
+			ServiceDistribution services, StaffingPolicy staffing,
+			Transfers transfers, int nserv, double tEnd, int batches,
+			long batchSize) {
+		this.batches = batches;
+		this.batchSize = batchSize;
+		this.arrivalProcess = arrivals;
+		this.serviceTimes = services;
+		this.staffing = staffing;
+		this.transfers = transfers;
+		this.nserv = nserv;
+		this.tEnd = tEnd;
+		this.traceStaffing = (staffing != StaffingPolicy.FIXED);
+	}
+
+	/**
+	 * Run a work-day from the start
+	 *
+	 * @param arrivals
+	 *            The stream of inter-arrival times
+	 * @param services
+	 *            The stream of service times, may be the arrivals stream
+	 * @param seed
+	 *            The seed the streams were made from, for the result
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return The statistics of the work-day
+	 */
+	public SimulationResult run(MyRandom arrivals, MyRandom services,
+			long seed, TraceSink trace) {
+		SimulationState state = start(arrivals, services, seed);
+		advance(state, Double.POSITIVE_INFINITY, trace);
+		return result(state);
+	}
+
+	/**
+	 * The state at the start of the day: an empty queue and the servers of
+	 * the start of the day, all free
+	 *
+	 * @param arrivals
+	 *            The stream of inter-arrival times
+	 * @param services
+	 *            The stream of service times, may be the arrivals stream
+	 * @param seed
+	 *            The seed the streams were made from, for the result
+	 * @return The state
+	 */
+	public SimulationState start(MyRandom arrivals, MyRandom services,
+			long seed) {
+		SimulationState state = new SimulationState(nserv, arrivals,
+				services, seed, new BatchMeans(batches, batchSize),
+				new BatchMeans(batches, batchSize), new HourlyWaitHistogram(
+						Math.min(tEnd, HourlyWaitHistogram.DAY)));
+		// Initialize the servers' status
+		for (int i = 0; i < nserv; i++) {
+			state.pool.open();
+		}
+		return state;
+	}
+
+	/**
+	 * Run the events of a state up to a time. An event after that time is
+	 * left for the next call, so running up to t1 and then on to the end is
+	 * the same as running to the end at once.
+	 *
+	 * @param state
+	 *            The state to advance
+	 * @param until
+	 *            Run every event up to this time; infinite for the whole day
+	 * @param trace
+	 *            The sink that receives the event trace
+	 * @return true if the day is over
+	 */
+	public boolean advance(SimulationState state, double until,
+			TraceSink trace) {
+		if (state.finished)
+			return true;
+		final MyRandom arrivals = state.arrivals;
+		final MyRandom services = state.services;
+		final Queue q = state.q;
+		final ServerPool pool = state.pool;
+		final Transfers transfers = this.transfers;
+		final SimulationMetrics metrics = SimulationMetrics.INSTANCE;
+		final double endTime = tEnd; // Minutes until endtime
+		final BatchMeans waitMeans = state.waitMeans;
+		final BatchMeans wait6Means = state.wait6Means;
+		final HourlyWaitHistogram waitHist = state.waitHist;
+
+		double clock = state.clock; // Time of the last event
+		double tna = state.tna; // Time to next arrival
+		int te = state.te; // Number of total events
+		int ta = state.ta; // Number of total arrivals, not counting transfers in
+		int qLength = state.qLength; // Max Q length
+		double ttServer = state.ttServer; // Total server free time, for the trace
+		double ttwait = state.ttwait; // Total waiting time
+		double ttServed = state.ttServed; // Total Number of Customers
+		double ttWait6 = state.ttWait6; // Number of customers waiting more than 6 minutes
+		double serverHours = state.serverHours; // Open servers integrated over time
+		double busyHours = state.busyHours; // Busy servers integrated over time
+		double queueHours = state.queueHours; // Queue length integrated over time
+		long busySrv = state.busySrv; // The total number of servers busy for all events
+		int prevHour = state.prevHour; // Keeping track of which hour has finished
+		int hourStartEvent = state.hourStartEvent;
+		int serverSum = state.serverSum;
+		boolean finished = false;
+		// The counts at the last report to the metrics
+		int teReported = te;
+		int taReported = ta;
+		double servedReported = ttServed;
+
+		// Primary simulation loop
+		while (true) {
+			// Get the next completion time from all servers
+			double tnc = pool.nextCompletionTime();
+
+			// A customer from another branch goes before a new one
+			double tnt = transfers.next();
+			boolean transfer = (tnt < tna);
+			double arrival = transfer ? tnt : tna;
+			// An arrival goes first when it ties with a completion
+			boolean arrivalEvent = (arrival <= tnc);
+			double tne = Math.min(arrival, tnc); // The time to the next event
+			if (tne == Double.POSITIVE_INFINITY) {
+				// Nothing more happens; the branch is open until the doors close
+				tne = Math.max(clock, endTime);
+			}
+			if (tne > until) {
+				// Leave the event for the next call
+				break;
+			}
+
+			// Check if the length of the Q is the largest
+			int ql = q.length();
+			if (ql > qLength) {
+				qLength = ql;
+			}
+
+			int servers = pool.openCount();
+			if (traceStaffing) {
+				// Trace the fraction and the number of servers per event
+				trace.state(te, clock, servers, ttWait6 / ttServed);
+			}
+			// Keep track of how many servers are busy
+			int busy = pool.busyCount();
+			busySrv += busy;
+
+			// Update the clock. The queue and the servers stay as they are
+			// until the event, so the areas under them grow by a rectangle.
+			double elapsed = tne - clock; // Time since the previous event
+			serverHours += servers * elapsed; // The cost of the staffing
+			busyHours += busy * elapsed;
+			queueHours += ql * elapsed;
+			clock = tne;
+
+			if (traceStaffing) {
+				// The average allocation of servers per hour
+				int currHour = (int) clock;
+				if (currHour == prevHour) {
+					serverSum += servers;
+				} else if (currHour >= prevHour) {
+					trace.hourlyServers(te, clock, currHour, (double) serverSum
+							/ (te - hourStartEvent));
+					serverSum = 0;
+					hourStartEvent = te;
+					prevHour = currHour;
+				}
+			}
+
+			// Get the index of the next available server
+			int id = pool.firstFree();
+			// BRANCH_1// Check if the condition to stop the simulation has been met.
+			if (q.isEmpty() && clock >= endTime
+					&& tnc == Double.POSITIVE_INFINITY) {
+				finished = true;
+				break;
+			}
+
+			if (arrivalEvent && clock < endTime) {
+				// BRANCH_2// This is an arrival event and the end time is not reached
+				// Report how many servers are free and for how long
+				int free = servers - busy;
+				ttServer += elapsed * free;
+				if (free != 0)
+					trace.serversFree(te, clock, free, elapsed, ttServer);
+
+				if (transfer) {
+					transfers.take();
+				} else {
+					tna = arrivalProcess.next(arrivals, clock);
+					ta++;
+				}
+				// BRANCH_3// Inner conditional loop to check if there is at
+				// least one server free
+				if (id == -1 && (transfer || !transfers.redirect(ql, clock))) {
+					// Put person in the queue
+					q.put(clock);
+					// If there is need for servers add one here; it takes
+					// the customer at the head of the queue
+					if (staffing.open(ql, pool.openCount()))
+						id = pool.open();
+				}
+				if (id != -1) {
+					// The customer at the head of the queue, or this one
+					double t = q.isEmpty() ? clock : q.get();
+					double wait = clock - t;
+					// Log the served customer
+					ttServed++;
+					if (wait > 0.1) {
+						ttWait6++;
+					}
+					if (t < clock)
+						trace.served(te, clock, wait);
+					ttwait += wait;
+					waitMeans.add(wait);
+					waitHist.record(t, wait);
+					wait6Means.add(wait > 0.1 ? 1.0 : 0.0);
+					pool.start(id, clock + serviceTimes.next(services));
+				}
+				trace.arrival(te, q.length(), clock);
+			} else if (!arrivalEvent) {
+				// BRANCH_4// This is a service completion event
+				int next = pool.nextCompletion();
+				// Report how many servers are free and for how long
+				int free = servers - busy;
+				ttServer += elapsed * free;
+				if (free != 0)
+					trace.serversFree(te, clock, free, elapsed, ttServer);
+				// BRANCH_5// Inner conditional loop to check if the queue is
+				// empty
+				if (q.isEmpty()) {
+					// If there is no more need; release the additional server
+					if (id != -1 && staffing.close(ql, pool.openCount()))
+						pool.close(id);
+					pool.release(next);
+				} else {
+					// Get person from queue
+					double t = q.get();
+					double wait = clock - t;
+					// Log the served customer
+					ttServed++;
+					// Check which customers waited more than 6 minutes (0.1
+					// of the hour)
+					if (wait > 0.1) {
+						ttWait6++;
+					}
+					trace.served(te, clock, wait);
+					// Update the sum of waiting times
+					ttwait += wait;
+					waitMeans.add(wait);
+					waitHist.record(t, wait);
+					wait6Means.add(wait > 0.1 ? 1.0 : 0.0);
+					// Sample for time of next completion
+					pool.next(next, clock + serviceTimes.next(services));
+				}
+				trace.completion(te, next, q.length(), clock);
+			} else if (transfer) {
+				// A customer sent over who arrives after the end of the day
+				// is not let in
+				transfers.take();
+			} else {
+				// An arrival after the end of the day is not let in
+				tna = Double.POSITIVE_INFINITY;
+			}
+			// Increment the number of events
+			te++;
+			if ((te & (SimulationMetrics.PUBLISH_EVENTS - 1)) == 0) {
+				metrics.publish(te - teReported, ta - taReported,
+						(long) (ttServed - servedReported), q.length(),
+						pool.openCount());
+				teReported = te;
+				taReported = ta;
+				servedReported = ttServed;
+			}
+		}// End of while loop
+		metrics.publish(te - teReported, ta - taReported,
+				(long) (ttServed - servedReported), q.length(), pool.openCount());
+
+		state.clock = clock;
+		state.tna = tna;
+		state.te = te;
+		state.ta = ta;
+		state.qLength = qLength;
+		state.ttServer = ttServer;
+		state.ttwait = ttwait;
+		state.ttServed = ttServed;
+		state.ttWait6 = ttWait6;
+		state.serverHours = serverHours;
+		state.busyHours = busyHours;
+		state.queueHours = queueHours;
+		state.busySrv = busySrv;
+		state.prevHour = prevHour;
+		state.hourStartEvent = hourStartEvent;
+		state.serverSum = serverSum;
+		state.finished = finished;
+		trace.flush();
+		return finished;
+	}// End of advance method
+
+	/**
+	 * The statistics of a state
+	 *
+	 * @param state
+	 *            The state, normally at the end of the day
+	 * @return The statistics
+	 */
+	public SimulationResult result(SimulationState state) {
+		return new SimulationResult(state.seed, state.ttwait, state.ttServed,
+				state.ttWait6, state.ta, state.te, state.qLength,
+				(double) state.busySrv / state.te, state.waitMeans,
+				state.wait6Means, state.waitHist, state.serverHours,
+				state.busyHours, state.queueHours, state.clock);
+	}// End of result method
+}// End of Class
@@ -0,0 +1,182 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * This class counts what the simulations of this JVM have done so far, for
+ * watching a long sweep while it runs. Once register() is called, as the
+ * main methods of the long-running simulators do, it is the MBean
+ * "Simulate:type=SimulationMetrics" and, while a flight recording is on,
+ * writes a MetricsEvent every second. A short run does not pay for starting
+ * JMX and the flight recorder.
+ *
+ * The kernel keeps its counts in locals as always and adds them here every
+ * PUBLISH_EVENTS events and at the end of every advance, so the event loop
+ * pays one test of the event number per event. The counters are LongAdders,
+ * so the threads of a ReplicationRunner do not contend on them.
+ *
+ * @version 18/10/26
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+	/**
+	 * The name of the MBean
+	 */
+	public static final String NAME = "Simulate:type=SimulationMetrics";
+
+	/**
+	 * The number of events between reports of a run, a power of 2
+	 */
+	public static final int PUBLISH_EVENTS = 1 << 16;
+
+	/**
+	 * The metrics of this JVM
+	 */
+	public static final SimulationMetrics INSTANCE = new SimulationMetrics();
+
+	private final LongAdder events = new LongAdder();
+	private final LongAdder arrivals = new LongAdder();
+	private final LongAdder served = new LongAdder();
+	private final LongAdder replicationsDone = new LongAdder();
+	private final LongAdder replicationsTotal = new LongAdder();
+	private volatile int queueLength;
+	private volatile int openServers;
+
+	// The last sample of the event count, for the rate
+	private long sampleTime = System.nanoTime();
+	private long sampleEvents;
+	private double eventsPerSecond;
+
+	private SimulationMetrics() {
+	}
+
+	/**
+	 * Register the MBean and the periodic flight recorder event, once
+	 */
+	public static void register() {
+		Registration.done();
+	}
+
+	// Registers when first used, and only once
+	private static class Registration {
+		static {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(
+						INSTANCE, new ObjectName(NAME));
+			} catch (JMException e) {
+				throw new IllegalStateException(e);
+			}
+			FlightRecorder.addPeriodicEvent(MetricsEvent.class,
+					INSTANCE::recordMetrics);
+		}
+
+		static void done() {
+		}
+	}
+
+	/**
+	 * Add the counts of a run since its last report
+	 *
+	 * @param events
+	 *            The events since the last report
+	 * @param arrivals
+	 *            The arrivals since the last report
+	 * @param served
+	 *            The customers served since the last report
+	 * @param queueLength
+	 *            The length of the queue now
+	 * @param openServers
+	 *            The number of open servers now
+	 */
+	public void publish(long events, long arrivals, long served,
+			int queueLength, int openServers) {
+		this.events.add(events);
+		this.arrivals.add(arrivals);
+		this.served.add(served);
+		this.queueLength = queueLength;
+		this.openServers = openServers;
+	}
+
+	/**
+	 * Replications have been asked for
+	 *
+	 * @param trials
+	 *            The number of replications
+	 */
+	public void replicationsStarted(int trials) {
+		replicationsTotal.add(trials);
+	}
+
+	/**
+	 * A replication has finished
+	 */
+	public void replicationDone() {
+		replicationsDone.increment();
+	}
+
+	public long getEvents() {
+		return events.sum();
+	}
+
+	public synchronized double getEventsPerSecond() {
+		long now = System.nanoTime();
+		if (now - sampleTime >= 1000000000L) {
+			long total = events.sum();
+			eventsPerSecond = (total - sampleEvents) * 1e9 / (now - sampleTime);
+			sampleEvents = total;
+			sampleTime = now;
+		}
+		return eventsPerSecond;
+	}
+
+	public long getArrivals() {
+		return arrivals.sum();
+	}
+
+	public long getCustomersServed() {
+		return served.sum();
+	}
+
+	public int getQueueLength() {
+		return queueLength;
+	}
+
+	public int getOpenServers() {
+		return openServers;
+	}
+
+	public long getReplicationsDone() {
+		return replicationsDone.sum();
+	}
+
+	public long getReplicationsTotal() {
+		return replicationsTotal.sum();
+	}
+
+	public synchronized void reset() {
+		events.reset();
+		arrivals.reset();
+		served.reset();
+		replicationsDone.reset();
+		replicationsTotal.reset();
+		sampleEvents = 0;
+		sampleTime = System.nanoTime();
+		eventsPerSecond = 0.0;
+	}
+
+	// Writes the periodic flight recorder event
+	private void recordMetrics() {
+		MetricsEvent event = new MetricsEvent();
+		event.events = getEvents();
+		event.eventsPerSecond = getEventsPerSecond();
+		event.queueLength = queueLength;
+		event.openServers = openServers;
+		event.replicationsDone = getReplicationsDone();
+		event.replicationsTotal = getReplicationsTotal();
+		event.commit();
+	}
+}// End of Class
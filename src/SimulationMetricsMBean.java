@@ -0,0 +1,61 @@
+/**
+ * This interface is the management view of the SimulationMetrics of a run,
+ * as seen in JConsole or any other JMX client.
+ *
+ * @version 18/10/26
+ */
+public interface SimulationMetricsMBean {
+
+	/**
+	 *
+	 * @return The number of events simulated so far
+	 */
+	long getEvents();
+
+	/**
+	 *
+	 * @return The events per second over the last second or so
+	 */
+	double getEventsPerSecond();
+
+	/**
+	 *
+	 * @return The number of customers arrived so far
+	 */
+	long getArrivals();
+
+	/**
+	 *
+	 * @return The number of customers served so far
+	 */
+	long getCustomersServed();
+
+	/**
+	 *
+	 * @return The length of the queue, as last reported by any run
+	 */
+	int getQueueLength();
+
+	/**
+	 *
+	 * @return The number of open servers, as last reported by any run
+	 */
+	int getOpenServers();
+
+	/**
+	 *
+	 * @return The number of replications finished
+	 */
+	long getReplicationsDone();
+
+	/**
+	 *
+	 * @return The number of replications asked for so far
+	 */
+	long getReplicationsTotal();
+
+	/**
+	 * Set every counter back to zero
+	 */
+	void reset();
+}// End of Interface
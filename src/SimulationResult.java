@@ -0,0 +1,401 @@
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+
+/**
+ * This class holds the summary statistics of a single replication of a
+ * simulated work-day. Every replication returns its own result object, so
+ * replications can run on different threads without sharing any state.
+ *
+ * @version 18/10/26
+ */
+public class SimulationResult {
+
+	private final long seed; // The seed the replication was run with
+	private final double ttwait; // Total waiting time
+	private final double ttServed; // Total Number of Customers
+	private final double ttWait6; // Number of customers waiting more than 6 minutes
+	private final int ta; // Number of total arrivals
+	private final int te; // Number of total events
+	private final int qLength; // Max Q length
+	private final double serverAvg; // Average number of busy servers per event
+	private final BatchMeans waitMeans; // Batch means of the waiting times
+	private final BatchMeans wait6Means; // Batch means of the waits >6min
+	private final HourlyWaitHistogram waitHist; // Histograms of the waits per hour
+	private final double serverHours; // Open servers integrated over the day
+	private final double busyHours; // Busy servers integrated over the day
+	private final double queueHours; // Queue length integrated over the day
+	private final double duration; // Time from the start to the last event
+
+	/**
+	 * @param seed The seed the replication was run with
+	 * @param ttwait Total waiting time of the served customers
+	 * @param ttServed Total number of customers served
+	 * @param ttWait6 Number of customers waiting more than 6 minutes
+	 * @param ta Total number of arrivals
+	 * @param te Total number of events
+	 * @param qLength Maximum queue length
+	 * @param serverAvg Average number of busy servers per event
+	 * @param waitMeans Batch means of the waiting times
+	 * @param wait6Means Batch means of the waits of more than 6 minutes
+	 * @param waitHist Histograms of the waiting times per hour
+	 * @param serverHours Open servers integrated over the day
+	 * @param busyHours Busy servers integrated over the day
+	 * @param queueHours Queue length integrated over the day
+	 * @param duration Time from the start to the last event
+	 */
+	public SimulationResult(long seed, double ttwait, double ttServed,
+			double ttWait6, int ta, int te, int qLength, double serverAvg,
+			BatchMeans waitMeans, BatchMeans wait6Means,
+			HourlyWaitHistogram waitHist, double serverHours, double busyHours,
+			double queueHours, double duration) {
+		this.seed = seed;
+		this.ttwait = ttwait;
+		this.ttServed = ttServed;
+		this.ttWait6 = ttWait6;
+		this.ta = ta;
+		this.te = te;
+		this.qLength = qLength;
+		this.serverAvg = serverAvg;
+		this.waitMeans = waitMeans;
+		this.wait6Means = wait6Means;
+		this.waitHist = waitHist;
+		this.serverHours = serverHours;
+		this.busyHours = busyHours;
+		this.queueHours = queueHours;
+		this.duration = duration;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 *
+	 * @return The total waiting time in hours
+	 */
+	public double getTotalWait() {
+		return ttwait;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getServed() {
+		return (int) ttServed;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getWait6() {
+		return (int) ttWait6;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getArrivals() {
+		return ta;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getEvents() {
+		return te;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getMaxQueueLength() {
+		return qLength;
+	}
+
+	/**
+	 *
+	 * @return The fraction of the open server-hours spent free
+	 */
+	public double getServerFreeFraction() {
+		return 1.0 - getUtilization();
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public double getServerAvg() {
+		return serverAvg;
+	}
+
+	/**
+	 *
+	 * @return The batch means of the waiting times, in hours
+	 */
+	public BatchMeans getWaitMeans() {
+		return waitMeans;
+	}
+
+	/**
+	 *
+	 * @return The batch means of the waits of more than 6 minutes, as 0/1
+	 */
+	public BatchMeans getWait6Means() {
+		return wait6Means;
+	}
+
+	/**
+	 *
+	 * @return The histograms of the waiting times per hour
+	 */
+	public HourlyWaitHistogram getWaitHistogram() {
+		return waitHist;
+	}
+
+	/**
+	 *
+	 * @return The server-hours of open positions, the cost of the staffing
+	 */
+	public double getServerHours() {
+		return serverHours;
+	}
+
+	/**
+	 *
+	 * @return The server-hours spent serving
+	 */
+	public double getBusyHours() {
+		return busyHours;
+	}
+
+	/**
+	 *
+	 * @return The customer-hours spent in the queue
+	 */
+	public double getQueueHours() {
+		return queueHours;
+	}
+
+	/**
+	 *
+	 * @return The time from the start to the last event, in hours
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 *
+	 * @return The time-average length of the queue (L)
+	 */
+	public double getAverageQueueLength() {
+		return queueHours / duration;
+	}
+
+	/**
+	 *
+	 * @return The fraction of the open server-hours spent serving (rho)
+	 */
+	public double getUtilization() {
+		return busyHours / serverHours;
+	}
+
+	/**
+	 *
+	 * @return The average waiting time in hours
+	 */
+	public double getAverageWait() {
+		return ttwait / ttServed;
+	}
+
+	/**
+	 *
+	 * @return The fraction of customers waiting more than 6 minutes
+	 */
+	public double getFraction() {
+		return ttWait6 / ttServed;
+	}
+
+	/**
+	 * Prints the summary of the replication
+	 */
+	public void print() {
+		DecimalFormat percent = new DecimalFormat("0.0#%");
+		System.out.println("Average waiting time: " + 60 * ttwait / ttServed
+				+ " minutes");
+		System.out.println("Server free fraction: "
+				+ percent.format(getServerFreeFraction()));
+		System.out.println("Maximum queue length: " + qLength);
+		System.out.println("Total customers arrived: " + ta);
+		System.out.println("Total customers served : " + (int) ttServed);
+		System.out.println("Total customers >6min  : " + (int) ttWait6);
+		System.out.println(" fraction              : " + getFraction());
+		System.out.println(" server avg            : " + serverAvg);
+		System.out.println(" avg queue length      : " + getAverageQueueLength());
+		System.out.println(" server-hours          : " + serverHours);
+	}
+
+	/**
+	 * Write the result to a buffer, for a cache of results
+	 *
+	 * @param out The buffer to write to
+	 */
+	void write(ByteBuffer out) {
+		out.putLong(seed).putDouble(ttwait).putDouble(ttServed)
+				.putDouble(ttWait6);
+		out.putInt(ta).putInt(te).putInt(qLength).putDouble(serverAvg);
+		out.putDouble(serverHours).putDouble(busyHours).putDouble(queueHours)
+				.putDouble(duration);
+		waitMeans.write(out);
+		wait6Means.write(out);
+		waitHist.write(out);
+	}
+
+	/**
+	 * Read a result written by write
+	 *
+	 * @param in The buffer to read from
+	 * @return A new result with those statistics
+	 */
+	static SimulationResult read(ByteBuffer in) {
+		long seed = in.getLong();
+		double ttwait = in.getDouble();
+		double ttServed = in.getDouble();
+		double ttWait6 = in.getDouble();
+		int ta = in.getInt();
+		int te = in.getInt();
+		int qLength = in.getInt();
+		double serverAvg = in.getDouble();
+		double serverHours = in.getDouble();
+		double busyHours = in.getDouble();
+		double queueHours = in.getDouble();
+		double duration = in.getDouble();
+		BatchMeans waitMeans = BatchMeans.read(in);
+		BatchMeans wait6Means = BatchMeans.read(in);
+		HourlyWaitHistogram waitHist = HourlyWaitHistogram.read(in);
+		return new SimulationResult(seed, ttwait, ttServed, ttWait6, ta, te,
+				qLength, serverAvg, waitMeans, wait6Means, waitHist,
+				serverHours, busyHours, queueHours, duration);
+	}
+
+	/**
+	 *
+	 * @return The number of bytes write needs at most
+	 */
+	int bytes() {
+		return 8 + 3 * 8 + 3 * 4 + 5 * 8 + waitMeans.bytes()
+				+ wait6Means.bytes() + waitHist.bytes();
+	}
+
+	/**
+	 * Accumulates the fraction of customers waiting more than 6 minutes over
+	 * a set of replications, in replication order
+	 *
+	 * @param results The results of the replications
+	 * @return The mean and variance of the fraction
+	 */
+	public static OnlineStats fractionStats(SimulationResult[] results) {
+		return fractionStats(results, 1);
+	}// End of fractionStats method
+
+	/**
+	 * Accumulates the fraction of customers waiting more than 6 minutes over
+	 * groups of consecutive replications. Antithetic pairs are not
+	 * independent, so they are averaged first and each pair counts once.
+	 *
+	 * @param results The results of the replications
+	 * @param group The number of replications per group, 2 for antithetic pairs
+	 * @return The mean and variance of the group averages
+	 */
+	public static OnlineStats fractionStats(SimulationResult[] results,
+			int group) {
+		OnlineStats stats = new OnlineStats();
+		for (int i = 0; i + group <= results.length; i += group) {
+			double sum = 0.0;
+			for (int j = i; j < i + group; j++)
+				sum += results[j].getFraction();
+			stats.add(sum / group);
+		}
+		return stats;
+	}// End of fractionStats method
+
+	/**
+	 * Accumulates the difference in the fraction of customers waiting more
+	 * than 6 minutes between two configurations run on the same seeds,
+	 * replication by replication
+	 *
+	 * @param a The results of the first configuration
+	 * @param b The results of the second configuration, in the same order
+	 * @param group The number of replications per group, 2 for antithetic pairs
+	 * @return The mean and variance of the differences a-b
+	 */
+	public static OnlineStats fractionDifferenceStats(SimulationResult[] a,
+			SimulationResult[] b, int group) {
+		if (a.length != b.length)
+			throw new IllegalArgumentException("Different numbers of trials");
+		OnlineStats stats = new OnlineStats();
+		for (int i = 0; i + group <= a.length; i += group) {
+			double sum = 0.0;
+			for (int j = i; j < i + group; j++)
+				sum += a[j].getFraction() - b[j].getFraction();
+			stats.add(sum / group);
+		}
+		return stats;
+	}// End of fractionDifferenceStats method
+
+	/**
+	 * Accumulates the average waiting time over a set of replications, in
+	 * replication order
+	 *
+	 * @param results The results of the replications
+	 * @return The mean and variance of the average waiting time, in hours
+	 */
+	public static OnlineStats waitStats(SimulationResult[] results) {
+		OnlineStats stats = new OnlineStats();
+		for (SimulationResult result : results) {
+			stats.add(result.getAverageWait());
+		}
+		return stats;
+	}// End of waitStats method
+
+	/**
+	 * Merges the hourly histograms of the waits over a set of replications
+	 *
+	 * @param results The results of the replications
+	 * @return A new histogram of all the replications
+	 */
+	public static HourlyWaitHistogram mergeHistograms(
+			SimulationResult[] results) {
+		HourlyWaitHistogram merged = new HourlyWaitHistogram(
+				results[0].getWaitHistogram().hours());
+		for (SimulationResult result : results) {
+			merged.merge(result.getWaitHistogram());
+		}
+		return merged;
+	}// End of mergeHistograms method
+
+	/**
+	 * Average fraction of customers waiting more than 6 minutes over a set of
+	 * replications. The sum is taken in replication order, so the answer does
+	 * not depend on which thread ran which replication.
+	 *
+	 * @param results The results of the replications
+	 * @return The average fraction
+	 */
+	public static double averageFraction(SimulationResult[] results) {
+		double sum = 0.0;
+		for (SimulationResult result : results) {
+			sum += result.getFraction();
+		}
+		return sum / results.length;
+	}// End of averageFraction method
+}// End of Class
@@ -0,0 +1,272 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class holds everything a run of the SimulationKernel has done so far:
+ * the clock, the customers in the queue, the servers and their completion
+ * times, the counters and statistics, and the random number streams. The
+ * kernel advances a state event by event, so a state saved in the middle of
+ * a day can be restored and carried on, as often as needed and under any
+ * staffing policy: a study of the afternoon need not simulate the morning
+ * again for every policy.
+ *
+ * A snapshot is written to a memory-mapped file in a compact binary form.
+ * A mapped snapshot can be restored any number of times, also from several
+ * threads at once, since every restore reads its own view of the buffer.
+ *
+ * @version 18/10/26
+ */
+public class SimulationState {
+
+	// "QSNP", the first four bytes of a snapshot
+	private static final int MAGIC = 0x51534E50;
+	private static final int VERSION = 4;
+
+	final long seed; // The seed the streams were made from
+	final MyRandom arrivals; // The stream of inter-arrival times
+	final MyRandom services; // The stream of service times
+	final Queue q; // Arrival times of the customers in the queue
+	final ServerPool pool; // Open and free servers
+
+	double clock; // Time of the last event
+	double tna; // Time to next arrival
+	int te; // Number of total events
+	int ta; // Number of total arrivals
+	int qLength; // Max Q length
+	double ttServer; // Total server free time, for the trace
+	double ttwait; // Total waiting time
+	double ttServed; // Total Number of Customers
+	double ttWait6; // Number of customers waiting more than 6 minutes
+	double serverHours; // Open servers integrated over time
+	double busyHours; // Busy servers integrated over time
+	double queueHours; // Queue length integrated over time
+	long busySrv; // The total number of servers busy for all events
+	int prevHour; // Keeping track of which hour has finished
+	int hourStartEvent;
+	int serverSum;
+	boolean finished; // The day is over
+	final BatchMeans waitMeans; // Batch means of the waits
+	final BatchMeans wait6Means; // Batch means of waits >6min
+	final HourlyWaitHistogram waitHist; // Waits per hour
+
+	/**
+	 * An empty branch at time 0 with no servers
+	 *
+	 * @param capacity
+	 *            The number of servers to size for
+	 * @param arrivals
+	 *            The stream of inter-arrival times
+	 * @param services
+	 *            The stream of service times, may be the arrivals stream
+	 * @param seed
+	 *            The seed the streams were made from, for the result
+	 * @param waitMeans
+	 *            The batch means of the waits
+	 * @param wait6Means
+	 *            The batch means of the waits >6min
+	 * @param waitHist
+	 *            The histograms of the waits per hour
+	 */
+	SimulationState(int capacity, MyRandom arrivals, MyRandom services,
+			long seed, BatchMeans waitMeans, BatchMeans wait6Means,
+			HourlyWaitHistogram waitHist) {
+		this(arrivals, services, seed, new Queue(), new ServerPool(capacity),
+				waitMeans, wait6Means, waitHist);
+	}
+
+	private SimulationState(MyRandom arrivals, MyRandom services, long seed,
+			Queue q, ServerPool pool, BatchMeans waitMeans,
+			BatchMeans wait6Means, HourlyWaitHistogram waitHist) {
+		this.arrivals = arrivals;
+		this.services = services;
+		this.seed = seed;
+		this.q = q;
+		this.pool = pool;
+		this.waitMeans = waitMeans;
+		this.wait6Means = wait6Means;
+		this.waitHist = waitHist;
+	}
+
+	/**
+	 *
+	 * @return The time of the last event
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 *
+	 * @return true once the day is over
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Write the state to a file through a memory mapping. The file is
+	 * created, or cut to the size of the snapshot.
+	 *
+	 * @param file
+	 *            The name of the file
+	 * @exception IOException
+	 *                if the file cannot be written
+	 */
+	public void save(String file) throws IOException {
+		byte[] streams = streams();
+		int size = 4 + 4 + 8 + 8 * 9 + 4 * 6 + 8 + 1 + 4 + 8 * q.length()
+				+ 4 + 12 * pool.openCount() + waitMeans.bytes()
+				+ wait6Means.bytes() + waitHist.bytes() + 4 + streams.length;
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE,
+					0, size);
+			out.putInt(MAGIC).putInt(VERSION).putLong(seed);
+			out.putDouble(clock).putDouble(tna).putDouble(ttServer);
+			out.putDouble(ttwait).putDouble(ttServed).putDouble(ttWait6);
+			out.putDouble(serverHours).putDouble(busyHours).putDouble(queueHours);
+			out.putInt(te).putInt(ta).putInt(qLength).putInt(prevHour);
+			out.putInt(hourStartEvent).putInt(serverSum);
+			out.putLong(busySrv).put((byte) (finished ? 1 : 0));
+			// The queue, from the next one off
+			out.putInt(q.length());
+			for (int i = 0; i < q.length(); i++)
+				out.putDouble(q.peek(i));
+			// The open servers by id, with their completion times
+			out.putInt(pool.openCount());
+			for (int id = 0; id < pool.ids(); id++) {
+				if (pool.isOpen(id))
+					out.putInt(id).putDouble(pool.tnc(id));
+			}
+			waitMeans.write(out);
+			wait6Means.write(out);
+			waitHist.write(out);
+			out.putInt(streams.length).put(streams);
+			out.force();
+		}
+	}
+
+	/**
+	 * Map a snapshot file for reading
+	 *
+	 * @param file
+	 *            The name of the file
+	 * @return The snapshot, to give to restore
+	 * @exception IOException
+	 *                if the file cannot be read
+	 */
+	public static ByteBuffer map(String file) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Restore a state from a mapped snapshot. The buffer itself is not
+	 * moved, so it can be restored again.
+	 *
+	 * @param snapshot
+	 *            The snapshot from map
+	 * @return A new state, independent of any other restored from it
+	 * @exception IOException
+	 *                if the snapshot is not valid
+	 */
+	public static SimulationState restore(ByteBuffer snapshot)
+			throws IOException {
+		ByteBuffer in = snapshot.duplicate();
+		in.rewind();
+		if (in.getInt() != MAGIC)
+			throw new IOException("Not a simulation snapshot");
+		if (in.getInt() != VERSION)
+			throw new IOException("Unknown snapshot version");
+		long seed = in.getLong();
+		double clock = in.getDouble();
+		double tna = in.getDouble();
+		double ttServer = in.getDouble();
+		double ttwait = in.getDouble();
+		double ttServed = in.getDouble();
+		double ttWait6 = in.getDouble();
+		double serverHours = in.getDouble();
+		double busyHours = in.getDouble();
+		double queueHours = in.getDouble();
+		int te = in.getInt();
+		int ta = in.getInt();
+		int qLength = in.getInt();
+		int prevHour = in.getInt();
+		int hourStartEvent = in.getInt();
+		int serverSum = in.getInt();
+		long busySrv = in.getLong();
+		boolean finished = in.get() != 0;
+		int queued = in.getInt();
+		Queue q = new Queue(Math.max(64, queued));
+		for (int i = 0; i < queued; i++)
+			q.put(in.getDouble());
+		int open = in.getInt();
+		ServerPool pool = new ServerPool(Math.max(1, open));
+		for (int i = 0; i < open; i++) {
+			int id = in.getInt();
+			double tnc = in.getDouble();
+			pool.open(id);
+			if (tnc != Double.POSITIVE_INFINITY)
+				pool.start(id, tnc);
+		}
+		BatchMeans waitMeans = BatchMeans.read(in);
+		BatchMeans wait6Means = BatchMeans.read(in);
+		HourlyWaitHistogram waitHist = HourlyWaitHistogram.read(in);
+		byte[] streams = new byte[in.getInt()];
+		in.get(streams);
+		MyRandom[] r = streams(streams);
+
+		SimulationState s = new SimulationState(r[0], r[1], seed, q, pool,
+				waitMeans, wait6Means, waitHist);
+		s.clock = clock;
+		s.tna = tna;
+		s.ttServer = ttServer;
+		s.ttwait = ttwait;
+		s.ttServed = ttServed;
+		s.ttWait6 = ttWait6;
+		s.serverHours = serverHours;
+		s.busyHours = busyHours;
+		s.queueHours = queueHours;
+		s.te = te;
+		s.ta = ta;
+		s.qLength = qLength;
+		s.prevHour = prevHour;
+		s.hourStartEvent = hourStartEvent;
+		s.serverSum = serverSum;
+		s.busySrv = busySrv;
+		s.finished = finished;
+		return s;
+	}
+
+	// The random number streams, serialized; a shared stream is written once
+	private byte[] streams() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(arrivals);
+			out.writeObject(services);
+		}
+		return bytes.toByteArray();
+	}
+
+	// Reads the streams back; a shared stream comes back shared
+	private static MyRandom[] streams(byte[] streams) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(streams))) {
+			return new MyRandom[] { (MyRandom) in.readObject(),
+					(MyRandom) in.readObject() };
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown random number stream", e);
+		}
+	}
+}// End of Class
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class looks for the cheapest staffing policy of Simulate3 that keeps
+ * the fraction of customers waiting more than 6 minutes below the target.
+ * A policy is the number of servers at the start of the day, the queue
+ * length above which a new position is opened and the largest number of
+ * open positions; its cost is the server-hours of the day.
+ *
+ * For every pair of threshold and maximum the smallest feasible number of
+ * starting servers is found by bisection, since more servers never make the
+ * queue worse. The pairs are searched in parallel, one step of every
+ * bisection at a time. Every policy is run in batches on common random
+ * numbers and dropped as soon as its interval is clearly above the target,
+ * or its cost is clearly above the cheapest feasible policy of the steps
+ * before. The best cost only changes between steps, so what is dropped, and
+ * the report, depend on the seed and not on the threads.
+ *
+ * Usage: StaffingOptimizer [target [maxStart]]
+ *
+ * @version 18/10/26
+ */
+public class StaffingOptimizer {
+
+	/**
+	 * A staffing policy and what is known about it
+	 */
+	public static class Policy {
+		final int nserv; // Servers at the start of the day
+		final int threshold; // Queue length above which a position opens
+		final int maxServers; // Largest number of open positions
+		final OnlineStats fraction = new OnlineStats(); // Fraction >6min
+		final OnlineStats cost = new OnlineStats(); // Server-hours per day
+		boolean feasible; // Meets the target
+		boolean dominated; // Clearly dearer than a feasible policy
+
+		Policy(int nserv, int threshold, int maxServers) {
+			this.nserv = nserv;
+			this.threshold = threshold;
+			this.maxServers = maxServers;
+		}
+
+		public String toString() {
+			String max = (maxServers == Integer.MAX_VALUE) ? "-" : String
+					.valueOf(maxServers);
+			return String.format(
+					"start %2d  open above %2d  max %3s : fraction %.4f +- %.4f,"
+							+ " server-hours %.2f +- %.2f, %d days%s", nserv,
+					threshold, max, fraction.mean(), fraction.halfWidth(0.95),
+					cost.mean(), cost.halfWidth(0.95), fraction.count(),
+					dominated ? " (dominated)" : feasible ? "" : " (infeasible)");
+		}
+	}
+
+	private final double lambdaA;
+	private final double lambdaS;
+	private final double tEnd;
+	private final double target; // Largest fraction waiting >6min
+	private final double confidence;
+	private final int batch; // Days per batch
+	private final int maxTrials; // Days per policy at most
+	private final long seed;
+	// Cost of the cheapest feasible policy of the steps so far; only changed
+	// between steps
+	private double bestCost = Double.POSITIVE_INFINITY;
+
+	/**
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param tEnd
+	 *            The time until the end of the work-day
+	 * @param target
+	 *            The largest fraction of customers waiting more than 6 minutes
+	 * @param confidence
+	 *            The confidence level of the decisions, e.g. 0.95
+	 * @param batch
+	 *            The number of days run between decisions
+	 * @param maxTrials
+	 *            The largest number of days run for a policy
+	 * @param seed
+	 *            The seed of the first day; all policies run on the same days
+	 */
+	public StaffingOptimizer(double lambdaA, double lambdaS, double tEnd,
+			double target, double confidence, int batch, int maxTrials,
+			long seed) {
+		this.lambdaA = lambdaA;
+		this.lambdaS = lambdaS;
+		this.tEnd = tEnd;
+		this.target = target;
+		this.confidence = confidence;
+		this.batch = batch;
+		this.maxTrials = maxTrials;
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws Exception {
+		double target = (args.length > 0) ? Double.parseDouble(args[0]) : 0.05;
+		int maxStart = (args.length > 1) ? Integer.parseInt(args[1]) : 6;
+		int[] thresholds = { 2, 4, 6, 8, 10 };
+		int[] maxServers = { 3, 4, 5, Integer.MAX_VALUE };
+
+		StaffingOptimizer optimizer = new StaffingOptimizer(58.0, 30.0, 8.0,
+				target, 0.95, 20, 400, 12342);
+		ForkJoinPool pool = new ForkJoinPool();
+		SimulationMetrics.register();
+		List<Policy> cheapest = optimizer.search(thresholds, maxServers,
+				maxStart, pool);
+		pool.shutdown();
+
+		System.out.println("Best start found for each threshold and maximum:");
+		Policy best = null;
+		for (Policy p : cheapest) {
+			System.out.println("  " + p);
+			if (p.feasible && !p.dominated
+					&& (best == null || p.cost.mean() < best.cost.mean()))
+				best = p;
+		}
+		System.out.println();
+		if (best == null)
+			System.out.println("No policy meets the target of " + target);
+		else
+			System.out.println("Cheapest policy: " + best);
+	}
+
+	/**
+	 * Search the grid of policies in parallel. Every step runs the next policy
+	 * of every bisection that is not done, and the cost of the feasible
+	 * policies is offered once all of them are in.
+	 *
+	 * @param thresholds
+	 *            The queue lengths above which a position opens
+	 * @param maxServers
+	 *            The largest numbers of open positions
+	 * @param maxStart
+	 *            The largest number of servers at the start of the day
+	 * @param pool
+	 *            The threads to search on
+	 * @return For each threshold and maximum, in grid order, the cheapest
+	 *         policy found, feasible or the last one tried
+	 * @exception InterruptedException if the search is interrupted
+	 * @exception ExecutionException if a simulation fails
+	 */
+	public List<Policy> search(int[] thresholds, int[] maxServers,
+			int maxStart, ForkJoinPool pool) throws InterruptedException,
+			ExecutionException {
+		List<Bisection> all = new ArrayList<Bisection>();
+		for (int threshold : thresholds)
+			for (int max : maxServers)
+				all.add(new Bisection(threshold, max, maxStart));
+		List<Bisection> open = new ArrayList<Bisection>();
+		for (Bisection b : all)
+			if (b.open())
+				open.add(b);
+		while (!open.isEmpty()) {
+			List<Callable<Policy>> tasks = new ArrayList<Callable<Policy>>();
+			for (final Bisection b : open) {
+				final int nserv = b.mid();
+				tasks.add(() -> evaluate(nserv, b.threshold, b.max));
+			}
+			List<Future<Policy>> step = pool.invokeAll(tasks);
+			for (int i = 0; i < open.size(); i++)
+				offer(open.get(i).step(step.get(i).get()));
+			open.removeIf(b -> !b.open());
+		}
+		List<Policy> cheapest = new ArrayList<Policy>();
+		for (Bisection b : all) {
+			Policy p = b.result();
+			if (p != null)
+				cheapest.add(p);
+		}
+		return cheapest;
+	}
+
+	/**
+	 * Bisection on the number of servers at the start of the day
+	 *
+	 * @param threshold
+	 *            The queue length above which a position opens
+	 * @param max
+	 *            The largest number of open positions
+	 * @param maxStart
+	 *            The largest number of servers at the start
+	 * @return The feasible policy with the fewest starting servers, or the
+	 *         last policy tried if none is feasible and cheap enough
+	 */
+	public Policy cheapestStart(int threshold, int max, int maxStart) {
+		Bisection b = new Bisection(threshold, max, maxStart);
+		while (b.open())
+			offer(b.step(evaluate(b.mid(), threshold, max)));
+		return b.result();
+	}
+
+	/**
+	 * Run a policy in batches of days until it is clearly above or below the
+	 * target, clearly dearer than the best feasible policy of the steps
+	 * before, or out of days
+	 *
+	 * @param nserv
+	 *            Servers at the start of the day
+	 * @param threshold
+	 *            The queue length above which a position opens
+	 * @param max
+	 *            The largest number of open positions
+	 * @return The policy with its statistics
+	 */
+	public Policy evaluate(int nserv, int threshold, int max) {
+		Policy p = new Policy(nserv, threshold, max);
+		int trials = 0;
+		while (trials < maxTrials) {
+			int n = Math.min(batch, maxTrials - trials);
+			for (int i = 0; i < n; i++) {
+				long s = seed + trials + i;
+				SimulationResult r = Simulate3.simulateNServers(lambdaA,
+						lambdaS, tEnd, nserv, threshold, max,
+						RandomStreams.arrivals(s, false),
+						RandomStreams.services(s, false), s,
+						NullTraceSink.INSTANCE);
+				p.fraction.add(r.getFraction());
+				p.cost.add(r.getServerHours());
+			}
+			trials += n;
+			// An interval from a handful of equal days is not trusted
+			if (trials < 2 * batch)
+				continue;
+			double hw = p.fraction.halfWidth(confidence);
+			if (p.fraction.mean() - hw > target)
+				return p; // Clearly misses the target
+			if (p.cost.mean() - p.cost.halfWidth(confidence) > bestCost) {
+				p.dominated = true;
+				return p; // Clearly dearer than a feasible policy
+			}
+			if (p.fraction.mean() + hw <= target)
+				break; // Clearly meets the target
+		}
+		p.feasible = p.fraction.mean() <= target;
+		return p;
+	}
+
+	// Lowers the best cost if this policy is feasible and cheaper; called
+	// between steps only
+	private void offer(Policy p) {
+		if (p.feasible && !p.dominated && p.cost.mean() < bestCost)
+			bestCost = p.cost.mean();
+	}
+
+	/**
+	 * The bisection on the starting servers of one threshold and maximum
+	 */
+	private static class Bisection {
+		final int threshold;
+		final int max;
+		private int lo = 1;
+		private int hi;
+		private Policy found; // The feasible policy with the fewest servers
+		private Policy last; // The last policy tried
+
+		Bisection(int threshold, int max, int maxStart) {
+			this.threshold = threshold;
+			this.max = max;
+			hi = Math.min(maxStart, max);
+		}
+
+		boolean open() {
+			return lo <= hi;
+		}
+
+		int mid() {
+			return (lo + hi) >>> 1;
+		}
+
+		// Narrows the range by the policy of mid() and returns it
+		Policy step(Policy p) {
+			last = p;
+			if (p.feasible || p.dominated) {
+				// Fewer servers may still meet the target for less
+				if (p.feasible && !p.dominated)
+					found = p;
+				hi = p.nserv - 1;
+			} else {
+				lo = p.nserv + 1;
+			}
+			return p;
+		}
+
+		Policy result() {
+			return (found != null) ? found : last;
+		}
+	}
+}// End of Class
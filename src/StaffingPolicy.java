@@ -0,0 +1,59 @@
+/**
+ * This interface decides when the simulation kernel opens and closes server
+ * positions. Both questions are asked with the length of the queue at the
+ * start of the event.
+ *
+ * @version 18/10/26
+ */
+public interface StaffingPolicy {
+
+	/**
+	 * The servers at the start of the day stay for the whole day
+	 */
+	StaffingPolicy FIXED = new StaffingPolicy() {
+		public boolean open(int qLength, int servers) {
+			return false;
+		}
+
+		public boolean close(int qLength, int servers) {
+			return false;
+		}
+	};
+
+	/**
+	 * Asked when a customer has to join the queue
+	 * @param qLength The length of the queue at the start of the event
+	 * @param servers The number of open positions
+	 * @return true to open a new position
+	 */
+	boolean open(int qLength, int servers);
+
+	/**
+	 * Asked when a server finishes and finds the queue empty
+	 * @param qLength The length of the queue at the start of the event
+	 * @param servers The number of open positions
+	 * @return true to close a free position
+	 */
+	boolean close(int qLength, int servers);
+
+	/**
+	 * Open a position while the queue is longer than a threshold, up to a
+	 * maximum, and close the extra ones once it is not
+	 * @param nserv The servers at the start of the day, never closed
+	 * @param threshold The queue length above which a new position is opened
+	 * @param maxServers The largest number of open positions
+	 * @return The staffing policy
+	 */
+	static StaffingPolicy threshold(final int nserv, final int threshold,
+			final int maxServers) {
+		return new StaffingPolicy() {
+			public boolean open(int qLength, int servers) {
+				return qLength > threshold && servers < maxServers;
+			}
+
+			public boolean close(int qLength, int servers) {
+				return qLength <= threshold && servers > nserv;
+			}
+		};
+	}
+}// End of Interface
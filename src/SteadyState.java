@@ -0,0 +1,101 @@
+/**
+ * This class estimates the steady state of a branch with a fixed number of
+ * servers from one long run, instead of from days that start empty. The
+ * run is of a given number of customers, 10^7 by default.
+ *
+ * The waits are kept only as batch means, starting with batches of 5 that
+ * coarsen as the run gets longer, so the memory is the same for any length
+ * of run. At the end the warm-up is found from those batches by MSER-5 and
+ * discarded, and the rest are regrouped into batch means for the confidence
+ * intervals.
+ *
+ * Usage: SteadyState [customers [nserv [lambdaA [lambdaS]]]]
+ *
+ * @version 18/10/26
+ */
+public class SteadyState {
+
+	/**
+	 * Least number of batches kept for finding the warm-up
+	 */
+	public static final int MSER_BATCHES = 1024;
+
+	/**
+	 * Number of waits per batch at the start, as in MSER-5
+	 */
+	public static final long MSER_BATCH = 5;
+
+	public static void main(String[] args) {
+		long customers = (args.length > 0) ? Long.parseLong(args[0])
+				: 10000000L;
+		int nserv = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		double lambdaA = (args.length > 2) ? Double.parseDouble(args[2]) : 58.0;
+		double lambdaS = (args.length > 3) ? Double.parseDouble(args[3]) : 20.0;
+		long seed = 12342;
+		SimulationMetrics.register();
+
+		long start = System.nanoTime();
+		SimulationResult result = simulate(lambdaA, lambdaS, customers, nserv,
+				seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		BatchMeans waits = result.getWaitMeans();
+		BatchMeans waits6 = result.getWait6Means();
+		int drop = waits.truncation();
+		BatchMeans steadyWaits = waits.truncated(drop,
+				BatchMeans.DEFAULT_BATCHES);
+		BatchMeans steadyWaits6 = waits6.truncated(drop,
+				BatchMeans.DEFAULT_BATCHES);
+
+		System.out.println("Customers served         : " + result.getServed());
+		System.out.println("Events                   : " + result.getEvents()
+				+ " in " + seconds + " s");
+		System.out.println("Warm-up discarded (MSER-5): " + drop
+				* waits.batchSize() + " customers (" + drop + " batches of "
+				+ waits.batchSize() + ")");
+		System.out.println("Steady-state wait (min)  : "
+				+ interval(steadyWaits, 60.0));
+		System.out.println("Steady-state >6min       : "
+				+ interval(steadyWaits6, 1.0));
+		System.out.println("Untruncated wait (min)   : "
+				+ interval(waits.truncated(0, BatchMeans.DEFAULT_BATCHES), 60.0));
+		System.out.println("Untruncated >6min        : "
+				+ interval(waits6.truncated(0, BatchMeans.DEFAULT_BATCHES), 1.0));
+	}
+
+	/**
+	 * Run a branch with a fixed number of servers for a number of customers,
+	 * keeping the batch means of the waits fine enough to find the warm-up
+	 *
+	 * @param lambdaA
+	 *            Mean of exponential inter-arrival distribution.
+	 * @param lambdaS
+	 *            Mean of erlang completion distribution.
+	 * @param customers
+	 *            The expected number of customers of the run
+	 * @param nserv
+	 *            The number of servers in the branch
+	 * @param seed
+	 *            The replication seed of the random number streams
+	 * @return The statistics of the run
+	 */
+	public static SimulationResult simulate(double lambdaA, double lambdaS,
+			long customers, int nserv, long seed) {
+		int k = 3; // Initializes the kappa of the Erlang distribution
+		double tEnd = customers / lambdaA;
+
+		SimulationKernel kernel = new SimulationKernel(ArrivalProcess.poisson(
+				lambdaA, tEnd), ServiceDistribution.erlang(k, lambdaS),
+				StaffingPolicy.FIXED, nserv, tEnd, MSER_BATCHES, MSER_BATCH);
+		return kernel.run(RandomStreams.arrivals(seed, false),
+				RandomStreams.services(seed, false), seed,
+				NullTraceSink.INSTANCE);
+	}
+
+	// Formats the mean with its 95% confidence interval, scaled
+	private static String interval(BatchMeans means, double scale) {
+		return scale * means.mean() + " +- " + scale * means.halfWidth(0.95)
+				+ " (95% CI, " + means.batches() + " batches of "
+				+ means.batchSize() + ")";
+	}
+}// End of Class
@@ -0,0 +1,100 @@
+import java.io.IOException;
+
+/**
+ * This interface receives the event trace of a simulation. The simulators
+ * report every event to a sink instead of printing it, so a production run
+ * can switch the trace off with a NullTraceSink, keep the old console output
+ * with a PrintTraceSink, write a buffered file with a CsvTraceSink, or a
+ * compact binary log of a very long run with an EventLogSink.
+ *
+ * @version 18/10/26
+ */
+public interface TraceSink {
+
+	/**
+	 * An arrival event
+	 * @param te The number of the event
+	 * @param qLength The length of the queue after the arrival
+	 * @param clock The time of the event
+	 */
+	void arrival(int te, int qLength, double clock);
+
+	/**
+	 * A service completion event
+	 * @param te The number of the event
+	 * @param server The id of the server, from 0
+	 * @param qLength The length of the queue after the completion
+	 * @param clock The time of the event
+	 */
+	void completion(int te, int server, int qLength, double clock);
+
+	/**
+	 * A customer taken off the queue by a server
+	 * @param te The number of the event
+	 * @param clock The time of the event
+	 * @param wait The time the customer waited in the queue
+	 */
+	void served(int te, double clock, double wait);
+
+	/**
+	 * Servers that have been free since the previous event
+	 * @param te The number of the event
+	 * @param clock The time of the event
+	 * @param free The number of free servers
+	 * @param timeFree The time since the previous event
+	 * @param ttServer The total server free time so far
+	 */
+	void serversFree(int te, double clock, int free, double timeFree,
+			double ttServer);
+
+	/**
+	 * The state of the branch at the start of an event
+	 * @param te The number of the event
+	 * @param clock The time of the event
+	 * @param servers The number of open servers
+	 * @param fraction The fraction of customers waiting more than 6 minutes
+	 */
+	void state(int te, double clock, int servers, double fraction);
+
+	/**
+	 * The average number of open servers over the hour just finished
+	 * @param te The number of the event
+	 * @param clock The time of the event
+	 * @param hour The hour just started
+	 * @param serverAvg The average number of open servers
+	 */
+	void hourlyServers(int te, double clock, int hour, double serverAvg);
+
+	/**
+	 * Write out any buffered records
+	 */
+	void flush();
+
+	/**
+	 * Write out any buffered records and release the sink
+	 */
+	void close();
+
+	/**
+	 * Pick a sink from the command line of a simulator: no arguments keeps
+	 * the console trace, "quiet" switches it off, "csv file" writes the
+	 * trace to a CSV file and "log file" to a binary event log.
+	 * @param args The command line arguments
+	 * @param singleServer Format the console trace as Simulate1 does
+	 * @return The trace sink
+	 * @exception IOException if the file cannot be opened
+	 */
+	static TraceSink fromArgs(String[] args, boolean singleServer)
+			throws IOException {
+		if (args.length == 0)
+			return new PrintTraceSink(System.out, singleServer);
+		if (args[0].equals("quiet"))
+			return NullTraceSink.INSTANCE;
+		if (args[0].equals("csv") && args.length > 1)
+			return new CsvTraceSink(args[1]);
+		if (args[0].equals("log") && args.length > 1)
+			return new EventLogSink(args[1]);
+		throw new IllegalArgumentException(
+				"Usage: [quiet | csv <file> | log <file>]");
+	}
+}// End of Interface
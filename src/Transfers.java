@@ -0,0 +1,46 @@
+/**
+ * This interface connects the simulation kernel of one branch to its
+ * neighbours: it brings in the customers sent over from other branches and
+ * decides whether an arriving customer who finds the queue long is sent on
+ * to another branch. A customer sent over is not sent on again.
+ *
+ * @version 18/10/26
+ */
+public interface Transfers {
+
+	/**
+	 * An isolated branch: no customers come in from or go to other branches
+	 */
+	Transfers NONE = new Transfers() {
+		public double next() {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		public void take() {
+		}
+
+		public boolean redirect(int qLength, double clock) {
+			return false;
+		}
+	};
+
+	/**
+	 *
+	 * @return The time the next customer from another branch arrives,
+	 *         infinite if none is on the way
+	 */
+	double next();
+
+	/**
+	 * The customer of next() has arrived
+	 */
+	void take();
+
+	/**
+	 * Asked when an arriving customer finds every server busy
+	 * @param qLength The length of the queue at the start of the event
+	 * @param clock The time of the arrival
+	 * @return true if the customer is sent to another branch
+	 */
+	boolean redirect(int qLength, double clock);
+}// End of Interface
@@ -0,0 +1,220 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This class counts waiting times in log-linear buckets, in the manner of an
+ * HDR histogram. Waits are recorded in whole seconds; below 128 seconds each
+ * second has its own bucket, and above that every power of two is split in
+ * 64 buckets, so a percentile is read off with an error below 1.6%. Recording
+ * is O(1), and histograms of different replications can be merged by adding
+ * the counts. The buckets are kept in groups of 64, each made when a wait
+ * first falls in it, so a histogram of a few minutes of waits takes a few
+ * KB instead of all 1728 buckets.
+ *
+ * @version 18/10/26
+ */
+public class WaitHistogram {
+
+	// Bits of precision per power of two
+	private static final int SUB_BITS = 7;
+	// Buckets per power of two above the linear range
+	private static final int HALF = 1 << (SUB_BITS - 1);
+	// Longest wait that is told apart, in seconds (about 136 years)
+	private static final int MAX_BITS = 32;
+	private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+	// Number of buckets
+	private static final int BUCKETS = index(MAX_VALUE) + 1;
+	// Number of groups of HALF buckets
+	private static final int GROUPS = BUCKETS / HALF;
+
+	// The counts of bucket i are counts[i / HALF][i % HALF], null for a group
+	// with no waits
+	private final long[][] counts = new long[GROUPS][];
+	private long total; // Number of waits recorded
+	private double sum; // Sum of the waits, in hours
+
+	/**
+	 * Record a waiting time
+	 *
+	 * @param wait
+	 *            The waiting time in hours
+	 */
+	public void record(double wait) {
+		long seconds = (long) (wait * 3600.0);
+		if (seconds < 0)
+			seconds = 0;
+		else if (seconds > MAX_VALUE)
+			seconds = MAX_VALUE;
+		int i = index(seconds);
+		group(i / HALF)[i % HALF]++;
+		total++;
+		sum += wait;
+	}
+
+	/**
+	 * Add the counts of another histogram to this one
+	 *
+	 * @param other
+	 *            The histogram to merge in
+	 */
+	public void merge(WaitHistogram other) {
+		for (int g = 0; g < GROUPS; g++) {
+			if (other.counts[g] == null)
+				continue;
+			long[] group = group(g);
+			for (int j = 0; j < HALF; j++)
+				group[j] += other.counts[g][j];
+		}
+		total += other.total;
+		sum += other.sum;
+	}
+
+	/**
+	 * Remove every recorded wait
+	 */
+	public void clear() {
+		java.util.Arrays.fill(counts, null);
+		total = 0;
+		sum = 0.0;
+	}
+
+	/**
+	 *
+	 * @return The number of waits recorded
+	 */
+	public long count() {
+		return total;
+	}
+
+	/**
+	 *
+	 * @return The exact mean of the waits in hours, NaN if there are none
+	 */
+	public double mean() {
+		return (total == 0) ? Double.NaN : sum / total;
+	}
+
+	/**
+	 * Returns a percentile of the waits: the upper edge of the bucket that
+	 * holds it, so the true value is never above the answer
+	 *
+	 * @param p
+	 *            The percentile, between 0 and 100
+	 * @return The waiting time in hours, NaN if there are no waits
+	 */
+	public double percentile(double p) {
+		if (total == 0)
+			return Double.NaN;
+		long rank = (long) Math.ceil(p / 100.0 * total);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += count(i);
+			if (seen >= rank)
+				return (upperEdge(i) + 1) / 3600.0;
+		}
+		return (upperEdge(BUCKETS - 1) + 1) / 3600.0;
+	}
+
+	/**
+	 * Returns the fraction of waits longer than a threshold. The threshold
+	 * is rounded to a bucket edge.
+	 *
+	 * @param wait
+	 *            The threshold in hours
+	 * @return The fraction of waits above it
+	 */
+	public double fractionAbove(double wait) {
+		if (total == 0)
+			return Double.NaN;
+		long seconds = (long) (wait * 3600.0);
+		int from = index(Math.min(Math.max(seconds, 0), MAX_VALUE)) + 1;
+		long above = 0;
+		for (int i = from; i < BUCKETS; i++)
+			above += count(i);
+		return (double) above / total;
+	}
+
+	/**
+	 * Write the counts to a buffer, for a snapshot of a run. Only the
+	 * buckets in use are written.
+	 *
+	 * @param out
+	 *            The buffer to write to
+	 */
+	void write(ByteBuffer out) {
+		out.putLong(total).putDouble(sum).putInt(used());
+		for (int i = 0; i < BUCKETS; i++)
+			if (count(i) != 0)
+				out.putInt(i).putLong(count(i));
+	}
+
+	/**
+	 * Read counts written by write
+	 *
+	 * @param in
+	 *            The buffer to read from
+	 * @return A new histogram with those counts
+	 */
+	static WaitHistogram read(ByteBuffer in) {
+		WaitHistogram h = new WaitHistogram();
+		h.total = in.getLong();
+		h.sum = in.getDouble();
+		int used = in.getInt();
+		for (int j = 0; j < used; j++) {
+			int i = in.getInt();
+			h.group(i / HALF)[i % HALF] = in.getLong();
+		}
+		return h;
+	}
+
+	/**
+	 *
+	 * @return The number of bytes write needs
+	 */
+	int bytes() {
+		return 8 + 8 + 4 + 12 * used();
+	}
+
+	// The count of a bucket
+	private long count(int i) {
+		long[] group = counts[i / HALF];
+		return (group == null) ? 0 : group[i % HALF];
+	}
+
+	// The counts of a group, made on first use
+	private long[] group(int g) {
+		long[] group = counts[g];
+		if (group == null)
+			group = counts[g] = new long[HALF];
+		return group;
+	}
+
+	// The number of buckets in use
+	private int used() {
+		int used = 0;
+		for (long[] group : counts)
+			if (group != null)
+				for (long c : group)
+					if (c != 0)
+						used++;
+		return used;
+	}
+
+	// Bucket of a wait in seconds
+	private static int index(long v) {
+		if (v < 2 * HALF)
+			return (int) v;
+		int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+		return shift * HALF + (int) (v >>> shift);
+	}
+
+	// Largest wait in seconds that falls in a bucket
+	private static long upperEdge(int i) {
+		if (i < 2 * HALF)
+			return i;
+		int shift = i / HALF - 1;
+		long sub = i % HALF + HALF;
+		return ((sub + 1) << shift) - 1;
+	}
+}// End of Class
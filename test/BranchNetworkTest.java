@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * No customer is sent to a neighbour who would arrive after the doors
+ * close, and a kernel turns away one who does.
+ *
+ * @version 18/10/26
+ */
+public class BranchNetworkTest {
+
+	private static final double END = 8.0;
+
+	// A branch with one neighbour a tenth of an hour away, whose queue is
+	// empty, in the window that ends at windowEnd
+	private static BranchNetwork.Branch branch(double windowEnd) {
+		BranchNetwork.Branch branch = new BranchNetwork.Branch(new int[] { 1 },
+				new double[] { 0.1 }, 1, END, new int[2]);
+		branch.windowEnd = windowEnd;
+		return branch;
+	}
+
+	@Test
+	public void nobodyIsSentInTheLastWindow() {
+		BranchNetwork.Branch branch = branch(Double.POSITIVE_INFINITY);
+		assertFalse(branch.redirect(5, 7.85));
+		assertEquals(0, branch.outCount);
+	}
+
+	@Test
+	public void nobodyIsSentToArriveAsTheDoorsClose() {
+		// Held to the end of the window, the customer would arrive at 8.0
+		BranchNetwork.Branch branch = branch(Math.nextDown(END));
+		assertFalse(branch.redirect(5, 7.85));
+		assertEquals(0, branch.outCount);
+	}
+
+	@Test
+	public void aCustomerIsSentBeforeTheDoorsClose() {
+		BranchNetwork.Branch branch = branch(7.9);
+		assertTrue(branch.redirect(5, 7.85));
+		assertEquals(1, branch.outCount);
+		assertTrue(branch.outTime[0] > 7.9 && branch.outTime[0] < END);
+	}
+
+	@Test
+	public void aTransferAfterTheEndOfTheDayIsTurnedAway() {
+		// One customer on the way, due after the doors close while the
+		// queue of the overloaded branch is still long
+		Transfers late = new Transfers() {
+			private double next = END + 0.5;
+
+			public double next() {
+				return next;
+			}
+
+			public void take() {
+				next = Double.POSITIVE_INFINITY;
+			}
+
+			public boolean redirect(int qLength, double clock) {
+				return false;
+			}
+		};
+		SimulationKernel kernel = new SimulationKernel(
+				ArrivalProcess.poisson(40.0, END),
+				ServiceDistribution.erlang(3, 20.0), StaffingPolicy.FIXED,
+				late, 1, END);
+		SimulationKernel alone = new SimulationKernel(
+				ArrivalProcess.poisson(40.0, END),
+				ServiceDistribution.erlang(3, 20.0), StaffingPolicy.FIXED, 1,
+				END);
+		SimulationResult result = assertTimeoutPreemptively(
+				Duration.ofSeconds(10), () -> kernel.run(new MyRandom(12342),
+						new MyRandom(12343), 12342, NullTraceSink.INSTANCE));
+		SimulationResult expected = alone.run(new MyRandom(12342),
+				new MyRandom(12343), 12342, NullTraceSink.INSTANCE);
+		assertEquals(expected.getArrivals(), result.getArrivals());
+		assertEquals(expected.getServed(), result.getServed());
+	}
+
+	@Test
+	public void aNetworkWhoseWindowsOverrunTheDayFinishes() throws Exception {
+		// Windows of 0.3 hours: the last one runs from 7.8 past the end
+		BranchNetwork network = new BranchNetwork(new double[] { 1.6, 0.4,
+				1.6 }, 30.0, END, 1, 2, 0.3, 12342);
+		SimulationResult[] results = assertTimeoutPreemptively(
+				Duration.ofSeconds(30), () -> network.run(2));
+		int served = 0;
+		for (SimulationResult result : results)
+			served += result.getServed();
+		assertTrue(network.transfers() > 0);
+		assertTrue(served > 0);
+	}
+}// End of Class
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A BufferedRandom gives the numbers of its generator, in the same order.
+ *
+ * @version 18/10/26
+ */
+public class BufferedRandomTest {
+
+	@Test
+	public void exponentialsAreTheGeneratorsNumbers() {
+		MyRandom plain = new FastRandom(12342);
+		MyRandom buffered = new BufferedRandom(new FastRandom(12342), 7);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(plain.nextExponential(58.0),
+					buffered.nextExponential(58.0));
+	}
+
+	@Test
+	public void erlangsAreTheGeneratorsNumbers() {
+		MyRandom plain = new AntitheticRandom(12342);
+		MyRandom buffered = new BufferedRandom(new AntitheticRandom(12342), 7);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(plain.nextErlang(3, 20.0),
+					buffered.nextErlang(3, 20.0));
+	}
+
+	@Test
+	public void mixedSamplesKeepTheOrder() {
+		MyRandom plain = new FastRandom(12342);
+		MyRandom buffered = new BufferedRandom(new FastRandom(12342), 8);
+		for (int i = 0; i < 1000; i++) {
+			switch (i % 4) {
+			case 0:
+				assertEquals(plain.nextExponential(19.0),
+						buffered.nextExponential(19.0));
+				break;
+			case 1:
+				assertEquals(plain.nextErlang(3, 20.0),
+						buffered.nextErlang(3, 20.0));
+				break;
+			case 2:
+				assertEquals(plain.nextDouble(), buffered.nextDouble());
+				break;
+			default:
+				assertEquals(plain.nextErlang(2, 20.0),
+						buffered.nextErlang(2, 20.0));
+			}
+		}
+	}
+
+	@Test
+	public void aSavedStreamCarriesOn() throws Exception {
+		MyRandom plain = new FastRandom(12342);
+		MyRandom buffered = new BufferedRandom(new FastRandom(12342));
+		for (int i = 0; i < 100; i++)
+			assertEquals(plain.nextErlang(3, 20.0), buffered.nextErlang(3, 20.0));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(buffered);
+		}
+		MyRandom restored;
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			restored = (MyRandom) in.readObject();
+		}
+		for (int i = 0; i < 1000; i++)
+			assertEquals(plain.nextErlang(3, 20.0), restored.nextErlang(3, 20.0));
+	}
+}// End of Class
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The steady state of ErlangC is the worst of a stable work-day, so a level
+ * it calls feasible meets the target in the simulated days too. Checked for
+ * the rates of Simulate2 and for every hourly rate of Simulate3.
+ *
+ * @version 18/10/26
+ */
+public class ErlangCTest {
+
+	private static final int K = 3;
+	private static final double TARGET = 0.05;
+	private static final int DAYS = 100;
+
+	// Arrivals and services per hour: Simulate2, then the hours of Simulate3
+	private static final double[][] RATES = { { 58.0, 20.0 }, { 58.0, 30.0 },
+			{ 50.0, 30.0 }, { 70.0, 30.0 }, { 80.0, 30.0 }, { 40.0, 30.0 },
+			{ 60.0, 30.0 } };
+
+	@Test
+	public void theSteadyStateIsTheWorstOfADay() {
+		// Every stable level up to the first one called feasible
+		for (double[] rate : RATES)
+			for (int c = 1; c == 1 || !feasible(rate, c - 1); c++)
+				if (rate[0] < c * rate[1])
+					assertTrue(simulatedFraction(rate, c) <= ErlangC.waitTail(c,
+							rate[0], rate[1], K, 0.1), rate[0] + "/" + rate[1]
+							+ " with " + c + " servers");
+	}
+
+	@Test
+	public void aFeasibleLevelMeetsTheTarget() {
+		for (double[] rate : RATES) {
+			int c = 1;
+			while (!feasible(rate, c))
+				c++;
+			assertTrue(simulatedFraction(rate, c) <= TARGET, rate[0] + "/"
+					+ rate[1] + " with " + c + " servers");
+		}
+	}
+
+	@Test
+	public void theSearchFindsTheSimulatedLevel() {
+		assertEquals(4, Simulate2.chooseServers(58.0, 20.0, 8.0, TARGET, DAYS));
+		assertEquals(3, Simulate2.chooseServers(58.0, 20.0, 8.0, 0.6, DAYS));
+	}
+
+	private static boolean feasible(double[] rate, int c) {
+		return ErlangC.screen(c, rate[0], rate[1], K, 0.1, TARGET)
+				== ErlangC.Verdict.FEASIBLE;
+	}
+
+	// The mean fraction waiting more than 6 minutes over the days
+	private static double simulatedFraction(double[] rate, int c) {
+		OnlineStats fraction = new OnlineStats();
+		for (long seed = 12342; seed < 12342 + DAYS; seed++)
+			fraction.add(Simulate2.simulateNServers(rate[0], rate[1], 8.0, c,
+					seed, NullTraceSink.INSTANCE).getFraction());
+		return fraction.mean();
+	}
+}// End of Class
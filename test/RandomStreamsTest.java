@@ -0,0 +1,40 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The streams of different replications and of the arrivals and services of
+ * one replication start from unrelated generator states.
+ *
+ * @version 18/10/26
+ */
+public class RandomStreamsTest {
+
+	@Test
+	public void adjacentSeedsShareNoStateWords() {
+		Set<Long> words = new HashSet<Long>();
+		long seed = 12342;
+		int replications = 10000;
+		for (long s = seed; s < seed + replications; s++) {
+			for (long n = 1; n <= 2; n++) {
+				for (long w : new FastRandom(RandomStreams.seed(s, n)).state())
+					assertTrue(words.add(w), "seed " + s + " stream " + n
+							+ " repeats a state word");
+			}
+		}
+	}
+
+	@Test
+	public void adjacentSeedsGiveUnrelatedSeeds() {
+		// Seeds a multiple of the golden ratio apart overlap in FastRandom
+		long golden = 0x9E3779B97F4A7C15L;
+		for (long s = 0; s < 10000; s++) {
+			long d = RandomStreams.seed(s + 1, 1) - RandomStreams.seed(s, 1);
+			for (long j = -4; j <= 4; j++)
+				assertTrue(d != j * golden, "seeds " + s + " and " + (s + 1));
+		}
+	}
+}// End of Class
@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A scenario that cannot be run is refused with the file and line it is on.
+ *
+ * @version 18/10/26
+ */
+public class ScenarioRunnerTest {
+
+	@TempDir
+	Path dir;
+
+	private String file(String name, String text) throws IOException {
+		Path path = dir.resolve(name);
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path.toString();
+	}
+
+	@Test
+	public void csvErrorsNameTheLine() throws Exception {
+		String file = file("grid.csv", "name,nserv,k,replications\n"
+				+ "one,2,3,10\n" + "# the next is wrong\n" + "two,2,3,0\n");
+		IOException e = assertThrows(IOException.class,
+				() -> ScenarioRunner.read(file));
+		assertEquals(file + ":4: replications must be at least 1",
+				e.getMessage());
+	}
+
+	@Test
+	public void jsonErrorsNameTheLine() throws Exception {
+		String file = file("grid.json", "[\n  {\"name\": \"one\", \"k\": 3},\n"
+				+ "  {\"name\": \"two\",\n   \"k\": 0}\n]\n");
+		IOException e = assertThrows(IOException.class,
+				() -> ScenarioRunner.read(file));
+		assertEquals(file + ":3: k must be at least 1", e.getMessage());
+	}
+
+	@Test
+	public void serversMustBeAtLeastOne() throws Exception {
+		String file = file("grid.csv", "nserv\n0\n");
+		IOException e = assertThrows(IOException.class,
+				() -> ScenarioRunner.read(file));
+		assertEquals(file + ":2: nserv must be at least 1", e.getMessage());
+	}
+
+	@Test
+	public void validScenariosAreRead() throws Exception {
+		String file = file("grid.csv", "name,nserv,threshold,replications\n"
+				+ "one,2,6,10\n" + "two,3,,20\n");
+		assertEquals(2, ScenarioRunner.read(file).size());
+	}
+}// End of Class
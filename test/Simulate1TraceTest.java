@@ -0,0 +1,42 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The console trace of Simulate1, seeded with 12342, is the trace the
+ * simulator printed before the kernel, kept in Simulate1.trace.
+ *
+ * @version 18/10/26
+ */
+public class Simulate1TraceTest {
+
+	@Test
+	public void traceIsTheBaselineTrace() throws Exception {
+		List<String> expected = Files.readAllLines(
+				Paths.get("test", "Simulate1.trace"), StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream console = System.out;
+		try {
+			System.setOut(new PrintStream(bytes, true, "UTF-8"));
+			Simulate1.simulateSingleServer(19.0, 20.0, 8.0);
+		} finally {
+			System.setOut(console);
+		}
+		String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8)
+				.split("\r?\n");
+
+		// The trace, then the statistics of the day
+		assertEquals(expected, Arrays.asList(lines).subList(0, expected.size()));
+		assertEquals("Average waiting time: 0.3206089589193116",
+				lines[expected.size()]);
+	}
+}// End of Class